@@ -0,0 +1,74 @@
+package io.jenkins.plugins.opslevel.benchmark;
+
+import hudson.EnvVars;
+import io.jenkins.plugins.opslevel.OpsLevelConfig;
+
+final class Fixtures {
+    // Inputs shaped like the ones a real build hands the notifier
+
+    private Fixtures() {
+    }
+
+    // What run.getEnvironment returns for a typical agent build: the variables Jenkins and the git plugin
+    // set, plus the agent's own environment
+    static EnvVars environment(int size) {
+        EnvVars env = new EnvVars();
+        env.put("BUILD_NUMBER", "1234");
+        env.put("BUILD_ID", "1234");
+        env.put("BUILD_TAG", "jenkins-team-a-backend-deploy-1234");
+        env.put("BUILD_URL", "https://jenkins.example.com/job/team-a/job/backend-deploy/1234/");
+        env.put("JOB_NAME", "team-a/backend-deploy");
+        env.put("JOB_BASE_NAME", "backend-deploy");
+        env.put("JOB_URL", "https://jenkins.example.com/job/team-a/job/backend-deploy/");
+        env.put("JENKINS_URL", "https://jenkins.example.com/");
+        env.put("NODE_NAME", "linux-agent-17");
+        env.put("WORKSPACE", "/home/jenkins/workspace/team-a/backend-deploy");
+        env.put("GIT_COMMIT", "500ca67ed52a9ca20f3181e618347e61f86a0625");
+        env.put("GIT_BRANCH", "origin/master");
+        env.put("GIT_URL", "git@github.com:example/backend.git");
+        env.put("DEPLOY_ENV", "Production");
+        env.put("SERVICE", "backend");
+        env.put("PATH", "/usr/local/sbin:/usr/local/bin:/usr/sbin:/usr/bin:/sbin:/bin:/opt/java/bin");
+        for (int i = env.size(); i < size; i++) {
+            env.put("AGENT_VAR_" + i, "value-" + i + "-" + Integer.toHexString(i * 7919));
+        }
+        return env;
+    }
+
+    // The global configuration, with the templates people commonly use
+    static OpsLevelConfig globalConfig() {
+        OpsLevelConfig config = new OpsLevelConfig();
+        config.webhookUrl = "https://app.opslevel.com/integrations/deploy/3e06d761-0347-4741-a617-000000000000";
+        config.serviceAliasTemplate = "${JOB_BASE_NAME}";
+        config.environment = "${DEPLOY_ENV:-Production}";
+        config.description = "Deploy #${BUILD_NUMBER} of ${JOB_NAME} from ${GIT_BRANCH}";
+        config.deployerName = "Jenkins on ${NODE_NAME}";
+        config.ignoreList = ignoreList(200);
+        return config;
+    }
+
+    // A long ignore list mixing every kind of rule
+    static String ignoreList(int rules) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < rules; i++) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            switch (i % 4) {
+                case 0:
+                    list.append("legacy-job-").append(i);
+                    break;
+                case 1:
+                    list.append("archived-").append(i).append('/');
+                    break;
+                case 2:
+                    list.append("*-sandbox-").append(i);
+                    break;
+                default:
+                    list.append("re:experiment-").append(i).append("-(dev|qa)");
+                    break;
+            }
+        }
+        return list.toString();
+    }
+}
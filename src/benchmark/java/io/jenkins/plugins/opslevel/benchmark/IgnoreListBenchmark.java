@@ -0,0 +1,58 @@
+package io.jenkins.plugins.opslevel.benchmark;
+
+import io.jenkins.plugins.opslevel.IgnoreListMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IgnoreListBenchmark {
+    // The ignore list check onCompleted makes for every finished build
+
+    @Param({"10", "200", "2000"})
+    int rules;
+
+    private IgnoreListMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        matcher = IgnoreListMatcher.compile(Fixtures.ignoreList(rules));
+    }
+
+    @Benchmark
+    public String notIgnored() {
+        // The common case: most builds are not on the list
+        return matcher.match("team-a » backend-deploy", "team-a/backend-deploy");
+    }
+
+    @Benchmark
+    public String ignoredByGlob() {
+        return matcher.match("payments-sandbox-2", "payments-sandbox-2");
+    }
+
+    @Benchmark
+    public String ignoredByFolder() {
+        return matcher.match("archived-1 » old-deploy", "archived-1/old-deploy");
+    }
+
+    @Benchmark
+    public IgnoreListMatcher compile() {
+        // Paid once per configuration save
+        return IgnoreListMatcher.compile(Fixtures.ignoreList(rules));
+    }
+}
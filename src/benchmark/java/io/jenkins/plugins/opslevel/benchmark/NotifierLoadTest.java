@@ -0,0 +1,191 @@
+package io.jenkins.plugins.opslevel.benchmark;
+
+import hudson.ExtensionList;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.opslevel.GlobalConfigUI;
+import io.jenkins.plugins.opslevel.JobListener;
+import io.jenkins.plugins.opslevel.OpsLevelConfig;
+import io.jenkins.plugins.opslevel.delivery.Delivery;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import io.jenkins.plugins.opslevel.metrics.LatencyHistogram;
+import io.jenkins.plugins.opslevel.metrics.NotifierMetrics;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class NotifierLoadTest {
+    // Completes thousands of synthetic builds from many threads at once, the way a release day does, against
+    // a local endpoint that is slow and sometimes fails. Only built with the benchmark profile:
+    //
+    //   mvn -Pbenchmark test -Dtest=NotifierLoadTest -Dopslevel.load.runs=5000 -Dopslevel.load.errorRate=0.1
+    //
+    // Reports how long each completion was held up by the notifier, throughput, threads and open sockets.
+    // A deploy is finished once its delivery completes, whether OpsLevel accepted it or it was given up on.
+
+    private static final int RUNS = Integer.getInteger("opslevel.load.runs", 2000);
+    private static final int THREADS = Integer.getInteger("opslevel.load.threads", 64);
+    private static final int PROJECTS = Integer.getInteger("opslevel.load.projects", 50);
+    private static final int LATENCY_MILLIS = Integer.getInteger("opslevel.load.latencyMillis", 50);
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("opslevel.load.errorRate", "0.05"));
+    private static final int DELIVERY_THREADS = Integer.getInteger("opslevel.load.deliveryThreads",
+                                                                   DeliveryQueue.DEFAULT_THREADS);
+    // Deploys posted together per request, 1 to post each one on its own
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("opslevel.load.maxBatchSize",
+                                                                 DeliveryQueue.DEFAULT_MAX_BATCH_SIZE);
+    private static final long TIMEOUT_SECONDS = Long.getLong("opslevel.load.timeoutSeconds", 600);
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testReleaseDayLoad() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new FlakyEndpoint(LATENCY_MILLIS, ERROR_RATE));
+        server.start();
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setRun(true);
+        descriptor.setWebhookUrl(server.url("").toString());
+        descriptor.setDeliveryThreads(DELIVERY_THREADS);
+        descriptor.setMaxBatchSize(MAX_BATCH_SIZE);
+        descriptor.setRetryBackoffMillis(10);
+        descriptor.applyDeliverySettings();
+
+        List<FreeStyleBuild> builds = completedBuilds();
+        JobListener listener = ExtensionList.lookupSingleton(JobListener.class);
+        NotifierMetrics metrics = NotifierMetrics.get();
+        List<CompletableFuture<Boolean>> outcomes = Collections.synchronizedList(new ArrayList<>());
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+        AtomicInteger peakSockets = new AtomicInteger(openSockets());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakSockets.accumulateAndGet(openSockets(), Math::max),
+                                    0, 100, TimeUnit.MILLISECONDS);
+
+        // Hold time is how long queueing the deploy keeps the run from finishing, which is what onCompleted
+        // does before it waits for OpsLevel's answer
+        LatencyHistogram holdTime = new LatencyHistogram();
+        ExecutorService completers = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (FreeStyleBuild build : builds) {
+            completers.submit(() -> {
+                OpsLevelConfig config = new OpsLevelConfig();
+                descriptor.getOpsLevelConfig().populateEmptyValuesOf(config);
+                long began = System.nanoTime();
+                List<Delivery> deliveries = listener.queueDeploy(build, TaskListener.NULL, config, null, null);
+                holdTime.record(System.nanoTime() - began);
+                outcomes.add(deliveries == null ? CompletableFuture.completedFuture(false)
+                                                : JobListener.allAccepted(deliveries));
+            });
+        }
+        completers.shutdown();
+        Assert.assertTrue(completers.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long completed = System.nanoTime();
+
+        Assert.assertEquals(RUNS, outcomes.size());
+        CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long delivered = System.nanoTime();
+        sampler.shutdownNow();
+        long accepted = outcomes.stream().filter(CompletableFuture::join).count();
+
+        double completeSeconds = (completed - start) / 1e9;
+        double deliverSeconds = (delivered - start) / 1e9;
+        System.out.printf("OpsLevel notifier load test: %d runs, %d completing threads, %d ms latency, %.0f%% errors, " +
+                          "batches of up to %d%n", RUNS, THREADS, LATENCY_MILLIS, ERROR_RATE * 100, MAX_BATCH_SIZE);
+        System.out.printf("  completions:  %.1f runs/s, hold time p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                          RUNS / completeSeconds, holdTime.getPercentileMillis(0.5),
+                          holdTime.getPercentileMillis(0.99), holdTime.getMaxMillis());
+        System.out.printf("  deliveries:   %.1f deploys/s, %d accepted, %d not accepted%n",
+                          RUNS / deliverSeconds, accepted, RUNS - accepted);
+        System.out.printf("  counters:     %d sent, %d retried, %d not delivered, %d dropped%n",
+                          metrics.getCount(NotifierMetrics.SENT),
+                          metrics.getCount(NotifierMetrics.RETRIED), metrics.getCount(NotifierMetrics.NOT_DELIVERED),
+                          metrics.getCount(NotifierMetrics.DROPPED));
+        System.out.printf("  requests:     %d received by the endpoint%n", server.getRequestCount());
+        System.out.printf("  resources:    %d peak threads, %d peak sockets%n",
+                          threadBean.getPeakThreadCount(), peakSockets.get());
+
+        server.shutdown();
+    }
+
+    private List<FreeStyleBuild> completedBuilds() throws Exception {
+        // Built but never run, so the test measures the notifier rather than Jenkins running builds
+        List<FreeStyleProject> projects = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            projects.add(jenkins.createFreeStyleProject());
+        }
+        List<FreeStyleBuild> builds = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            FreeStyleBuild build = new FreeStyleBuild(projects.get(i % PROJECTS));
+            build.setResult(Result.SUCCESS);
+            builds.add(build);
+        }
+        return builds;
+    }
+
+    private static int openSockets() {
+        // Linux only, elsewhere this reports -1
+        File fds = new File("/proc/self/fd");
+        if (!fds.isDirectory()) {
+            return -1;
+        }
+        try (Stream<Path> entries = Files.list(fds.toPath())) {
+            return (int) entries.filter(NotifierLoadTest::isSocket).count();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static boolean isSocket(Path fd) {
+        try {
+            return Files.readSymbolicLink(fd).toString().startsWith("socket:");
+        } catch (Exception e) {
+            // Closed while we were listing
+            return false;
+        }
+    }
+
+    private static class FlakyEndpoint extends Dispatcher {
+        private final int latencyMillis;
+        private final double errorRate;
+
+        FlakyEndpoint(int latencyMillis, double errorRate) {
+            this.latencyMillis = latencyMillis;
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            MockResponse response = ThreadLocalRandom.current().nextDouble() < errorRate
+                    ? new MockResponse().setResponseCode(503).setBody("{\"error\":\"Unavailable\"}")
+                    : new MockResponse().setBody("{\"result\": \"ok\"}");
+            return response.setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
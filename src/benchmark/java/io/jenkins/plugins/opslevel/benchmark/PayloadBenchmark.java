@@ -0,0 +1,102 @@
+package io.jenkins.plugins.opslevel.benchmark;
+
+import hudson.EnvVars;
+import io.jenkins.plugins.opslevel.GlobalConfigSnapshot;
+import io.jenkins.plugins.opslevel.OpsLevelConfig;
+import io.jenkins.plugins.opslevel.Template;
+import io.jenkins.plugins.opslevel.delivery.DeployPayload;
+import io.jenkins.plugins.opslevel.delivery.DeployPayloadWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+    // Building and encoding a deploy the way JobListener.buildDeployPayload does, minus the parts that need
+    // a live Jenkins (the run's environment and the git repository are fixtures here)
+
+    @Param({"200", "1000"})
+    int envSize;
+
+    private EnvVars env;
+    private GlobalConfigSnapshot globalConfig;
+    private DeployPayload payload;
+
+    @Setup
+    public void setUp() {
+        env = Fixtures.environment(envSize);
+        globalConfig = new GlobalConfigSnapshot(Fixtures.globalConfig());
+        payload = build(merged());
+    }
+
+    @Benchmark
+    public OpsLevelConfig populateEmptyValues() {
+        return merged();
+    }
+
+    @Benchmark
+    public DeployPayload buildPayload() {
+        return build(merged());
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return DeployPayloadWriter.toBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() {
+        return DeployPayloadWriter.toBytes(build(merged()));
+    }
+
+    private OpsLevelConfig merged() {
+        // A freestyle job overriding only the environment
+        OpsLevelConfig jobConfig = new OpsLevelConfig();
+        jobConfig.environment = "Staging";
+        globalConfig.populateEmptyValuesOf(jobConfig);
+        return jobConfig;
+    }
+
+    private DeployPayload build(OpsLevelConfig config) {
+        DeployPayload payload = new DeployPayload();
+        payload.dedupId = "0c6bd2b5-6e8e-3e6b-9bd4-5f0a3c1e9b77";
+        payload.deployNumber = env.get("BUILD_NUMBER");
+        payload.deployUrl = env.get("BUILD_URL");
+        payload.deployedAt = Instant.now().toString();
+        payload.environment = render(config.environment);
+        payload.service = render(config.serviceAliasTemplate);
+        payload.description = render(config.description);
+
+        payload.deployer = new DeployPayload.Deployer();
+        payload.deployer.name = render(config.deployerName);
+
+        payload.commit = new DeployPayload.Commit();
+        payload.commit.sha = env.get("GIT_COMMIT");
+        payload.commit.branch = env.get("GIT_BRANCH");
+        payload.commit.message = "Fix typo in the \"deploy\" script";
+        payload.commit.authorName = "Jane Doe";
+        payload.commit.authorEmail = "jane@example.com";
+        payload.commit.authoringDate = "2021-05-01T10:00:00Z";
+        return payload;
+    }
+
+    private String render(String template) {
+        return Template.compile(template).render(env::get);
+    }
+}
@@ -0,0 +1,45 @@
+package io.jenkins.plugins.opslevel.benchmark;
+
+import hudson.EnvVars;
+import io.jenkins.plugins.opslevel.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+    // Template substitution, as stringSub does it for every templated field of every deploy
+
+    @Param({"200", "1000"})
+    int envSize;
+
+    @Param({"Deploy #${BUILD_NUMBER} of ${JOB_NAME} from ${GIT_BRANCH}", "${DEPLOY_ENV:-Production}", "Production"})
+    String template;
+
+    private EnvVars env;
+
+    @Setup
+    public void setUp() {
+        env = Fixtures.environment(envSize);
+    }
+
+    @Benchmark
+    public String render() {
+        return Template.compile(template).render(env::get);
+    }
+}
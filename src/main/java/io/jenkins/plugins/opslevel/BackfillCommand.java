@@ -0,0 +1,45 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.util.StreamTaskListener;
+import jenkins.model.Jenkins;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Extension
+public class BackfillCommand extends CLICommand {
+    // opslevel-backfill JOB... sends the jobs' past deploys to OpsLevel and waits until they are delivered
+
+    @Argument(metaVar = "JOB", usage = "Full names of the jobs to backfill", required = true)
+    public List<String> jobs = new ArrayList<>();
+
+    @Option(name = "-batch-size", usage = "Deploys to deliver before starting on the next ones")
+    public int batchSize = DeployBackfill.DEFAULT_BATCH_SIZE;
+
+    @Option(name = "-restart", usage = "Start from the first build instead of the last checkpoint")
+    public boolean restart = false;
+
+    @Override
+    public String getShortDescription() {
+        return "Sends the past deploys of jobs to OpsLevel.";
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        DeployBackfill backfill;
+        try {
+            backfill = DeployBackfill.begin(jobs, batchSize, restart, new StreamTaskListener(stdout, getClientCharset()));
+        } catch (IllegalStateException e) {
+            stderr.println(e.getMessage());
+            return 1;
+        }
+        // On this thread, so the command returns once the backfill is over
+        backfill.run();
+        return backfill.getState() == DeployBackfill.State.FINISHED ? 0 : 1;
+    }
+}
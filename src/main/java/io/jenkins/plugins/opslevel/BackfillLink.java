@@ -0,0 +1,122 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import hudson.util.StreamTaskListener;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+@Extension
+public class BackfillLink extends ManagementLink {
+    // Manage Jenkins page to send the past deploys of some jobs to OpsLevel and follow its progress. The
+    // output goes to JENKINS_HOME/opslevel/backfill.log.
+
+    @Override
+    public String getIconFileName() {
+        return "notepad.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OpsLevel Deploy Backfill";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Send the past deploys of selected jobs to OpsLevel.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "opslevel-backfill";
+    }
+
+    @Nonnull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    @Nonnull
+    @Override
+    public Category getCategory() {
+        return Category.TOOLS;
+    }
+
+    public DeployBackfill getBackfill() {
+        return DeployBackfill.getCurrent();
+    }
+
+    public int getDefaultBatchSize() {
+        return DeployBackfill.DEFAULT_BATCH_SIZE;
+    }
+
+    @RequirePOST
+    public HttpResponse doStart(@QueryParameter String jobs, @QueryParameter int batchSize,
+                                @QueryParameter boolean restart) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        List<String> jobNames = parseJobNames(jobs);
+        if (jobNames.isEmpty()) {
+            return HttpResponses.errorWithoutStack(400, "No jobs to backfill");
+        }
+        File log = new File(Jenkins.get().getRootDir(), "opslevel/backfill.log");
+        if (!log.getParentFile().isDirectory() && !log.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + log.getParentFile());
+        }
+        StreamTaskListener listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+        DeployBackfill backfill;
+        try {
+            backfill = DeployBackfill.begin(jobNames, batchSize, restart, listener);
+        } catch (IllegalStateException e) {
+            listener.closeQuietly();
+            return HttpResponses.errorWithoutStack(409, e.getMessage());
+        }
+        // Can take hours, so on a thread of its own rather than a shared pool
+        Thread thread = new Thread(() -> {
+            try {
+                backfill.run();
+            } finally {
+                listener.closeQuietly();
+            }
+        }, "OpsLevel deploy backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return HttpResponses.redirectToDot();
+    }
+
+    @RequirePOST
+    public HttpResponse doCancel() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        DeployBackfill backfill = DeployBackfill.getCurrent();
+        if (backfill != null) {
+            backfill.cancel();
+        }
+        return HttpResponses.redirectToDot();
+    }
+
+    static List<String> parseJobNames(String jobs) {
+        // One full job name per line
+        List<String> jobNames = new ArrayList<>();
+        if (jobs == null) {
+            return jobNames;
+        }
+        for (String line : jobs.split("\\r?\\n")) {
+            String jobName = line.trim();
+            if (!jobName.isEmpty() && !jobNames.contains(jobName)) {
+                jobNames.add(jobName);
+            }
+        }
+        return jobNames;
+    }
+}
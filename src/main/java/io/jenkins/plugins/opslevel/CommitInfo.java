@@ -0,0 +1,35 @@
+package io.jenkins.plugins.opslevel;
+
+import java.io.Serializable;
+
+public class CommitInfo implements Serializable {
+    // The parts of a commit we report to OpsLevel
+
+    private static final long serialVersionUID = 1L;
+
+    public final String sha;
+    public final String subject;
+    public final String authorName;
+    public final String authorEmail;
+    // Seconds since the epoch, or -1 when the commit has no readable author line
+    public final long authorTime;
+
+    public CommitInfo(String sha, String subject, String authorName, String authorEmail, long authorTime) {
+        this.sha = sha;
+        this.subject = subject;
+        this.authorName = authorName;
+        this.authorEmail = authorEmail;
+        this.authorTime = authorTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CommitInfo{" +
+               "sha='" + sha + '\'' +
+               ", subject='" + subject + '\'' +
+               ", authorName='" + authorName + '\'' +
+               ", authorEmail='" + authorEmail + '\'' +
+               ", authorTime=" + authorTime +
+               '}';
+    }
+}
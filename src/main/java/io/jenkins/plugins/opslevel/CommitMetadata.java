@@ -0,0 +1,103 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CommitMetadata {
+    // Reads commit metadata where the checkout is. The workspace usually lives on an agent, so the
+    // reading is shipped there and only the small CommitInfo travels back to the controller.
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitMetadata.class);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private CommitMetadata() {
+    }
+
+    public static CommitInfo read(FilePath workspace, String sha) {
+        return read(() -> workspace, sha);
+    }
+
+    // The workspace is only looked up when the commit is not cached, finding it can mean finding the agent
+    public static CommitInfo read(Supplier<FilePath> workspaces, String sha) {
+        // The same commit is often deployed to several environments in a row
+        CommitInfo cached = GitCommitReader.cached(sha);
+        if (cached != null) {
+            return cached;
+        }
+        FilePath workspace = workspaces.get();
+        if (workspace == null) {
+            return null;
+        }
+
+        Future<CommitInfo> future = null;
+        try {
+            future = workspace.actAsync(new ReadCommit(sha));
+            CommitInfo info = future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (info != null) {
+                GitCommitReader.remember(info);
+            }
+            return info;
+        } catch (TimeoutException e) {
+            logger.warn("Gave up reading commit {} from {} after {} seconds", sha, workspace, TIMEOUT_SECONDS);
+            future.cancel(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ExecutionException e) {
+            logger.warn("Could not read commit {} from {}: {}", sha, workspace, e.toString());
+        }
+        return null;
+    }
+
+    public static FilePath findWorkspace(Run run, EnvVars env) {
+        if (run instanceof AbstractBuild) {
+            FilePath workspace = ((AbstractBuild<?, ?>) run).getWorkspace();
+            if (workspace != null) {
+                return workspace;
+            }
+        }
+
+        // Otherwise find the node the build ran on from its environment
+        String workspace = env.get("WORKSPACE");
+        if (workspace == null) {
+            return null;
+        }
+        String nodeName = env.get("NODE_NAME");
+        Jenkins jenkins = Jenkins.get();
+        Node node = nodeName == null || nodeName.equals("master") || nodeName.equals("built-in")
+                    ? jenkins : jenkins.getNode(nodeName);
+        // Null when the agent has gone offline since the build
+        return node == null ? null : node.createPath(workspace);
+    }
+
+    private static class ReadCommit extends MasterToSlaveFileCallable<CommitInfo> {
+        private static final long serialVersionUID = 1L;
+
+        private final String sha;
+
+        ReadCommit(String sha) {
+            this.sha = sha;
+        }
+
+        @Override
+        public CommitInfo invoke(File workspace, VirtualChannel channel) throws IOException {
+            return GitCommitReader.read(workspace, sha);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.ExtensionList;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import io.jenkins.plugins.opslevel.workflow.NotifyStepHistory;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeployBackfill implements Runnable {
+    // Sends the past deploys of some jobs to OpsLevel, for services that were onboarded after they started
+    // deploying. Runs are visited oldest first one at a time, so only the current batch is held in memory, and
+    // each batch is delivered before the next is built. After every batch the last build number visited is
+    // checkpointed in JENKINS_HOME/opslevel/backfill.properties, and the next backfill of the job carries on
+    // from there.
+    //
+    // Runs are picked and built exactly like onCompleted does, so a deploy OpsLevel already has gets the same
+    // dedup id and is skipped. Runs whose pipeline used opsLevelNotify are skipped too, their steps' settings
+    // are not kept. Those from before the step marked its run are found by looking for it in their flow graph.
+
+    public static final int DEFAULT_BATCH_SIZE = 20;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeployBackfill.class);
+    // Checkpoint a job with long stretches of failed builds now and then, not only after full batches
+    private static final int CHECKPOINT_INTERVAL = 500;
+
+    private static DeployBackfill current = null;
+
+    public enum State { RUNNING, FINISHED, CANCELLED, FAILED }
+
+    private final List<String> jobNames;
+    private final int batchSize;
+    private final boolean restart;
+    private final Checkpoints checkpoints;
+    private final TaskListener listener;
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong notAccepted = new AtomicLong();
+    private volatile State state = State.RUNNING;
+    private volatile String currentJob = null;
+    private volatile String error = null;
+    private volatile boolean cancelled = false;
+
+    DeployBackfill(List<String> jobNames, int batchSize, boolean restart, Checkpoints checkpoints,
+                   TaskListener listener) {
+        this.jobNames = Collections.unmodifiableList(new ArrayList<>(jobNames));
+        this.batchSize = Math.max(1, batchSize);
+        this.restart = restart;
+        this.checkpoints = checkpoints;
+        this.listener = listener;
+    }
+
+    // Only one backfill runs at a time. The caller runs it, on its own thread or a new one.
+    public static synchronized DeployBackfill begin(List<String> jobNames, int batchSize, boolean restart,
+                                                    TaskListener listener) {
+        if (current != null && current.state == State.RUNNING) {
+            throw new IllegalStateException("An OpsLevel backfill is already running");
+        }
+        File file = new File(Jenkins.get().getRootDir(), "opslevel/backfill.properties");
+        current = new DeployBackfill(jobNames, batchSize, restart, new Checkpoints(file), listener);
+        return current;
+    }
+
+    public static synchronized DeployBackfill getCurrent() {
+        return current;
+    }
+
+    @Override
+    public void run() {
+        // Started from a request or the CLI, but it reads every job it was given
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            JobListener notifier = ExtensionList.lookupSingleton(JobListener.class);
+            for (String jobName : jobNames) {
+                if (cancelled) {
+                    break;
+                }
+                Job<?, ?> job = Jenkins.get().getItemByFullName(jobName, Job.class);
+                if (job == null) {
+                    listener.error("No job named " + jobName);
+                    continue;
+                }
+                currentJob = jobName;
+                backfill(job, notifier);
+            }
+            state = cancelled ? State.CANCELLED : State.FINISHED;
+        } catch (InterruptedException e) {
+            state = State.CANCELLED;
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            error = e.toString();
+            state = State.FAILED;
+            logger.error("OpsLevel backfill failed. {}", e.toString());
+            listener.error("Backfill failed: " + e);
+        } finally {
+            currentJob = null;
+            listener.getLogger().println("OpsLevel backfill " + state.name().toLowerCase() + ": " + getSummary());
+        }
+    }
+
+    public void cancel() {
+        // Deploys already queued are still delivered
+        cancelled = true;
+    }
+
+    private void backfill(Job<?, ?> job, JobListener notifier) throws IOException, InterruptedException {
+        Run<?, ?> lastCompleted = job.getLastCompletedBuild();
+        if (lastCompleted == null) {
+            return;
+        }
+        int end = lastCompleted.getNumber();
+        int next = restart ? 1 : checkpoints.get(job.getFullName()) + 1;
+        listener.getLogger().println("Backfilling " + job.getFullName() + " from #" + next + " to #" + end);
+
+        List<CompletableFuture<Boolean>> batch = new ArrayList<>();
+        int sinceCheckpoint = 0;
+        while (next <= end && !cancelled) {
+            // Loads this one run, skipping over deleted build numbers
+            Run<?, ?> run = job.getNearestBuild(next);
+            if (run == null || run.getNumber() > end) {
+                break;
+            }
+            next = run.getNumber() + 1;
+            scanned.incrementAndGet();
+            sinceCheckpoint++;
+
+            CompletableFuture<Boolean> delivered = backfill(run, notifier);
+            if (delivered != null) {
+                batch.add(delivered);
+            }
+            if (batch.size() >= batchSize || sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                drain(batch);
+                checkpoints.put(job.getFullName(), run.getNumber());
+                sinceCheckpoint = 0;
+                listener.getLogger().println("Backfilled " + job.getFullName() + " up to #" + run.getNumber() +
+                                             ": " + getSummary());
+            }
+        }
+        drain(batch);
+        checkpoints.put(job.getFullName(), next - 1);
+    }
+
+    private CompletableFuture<Boolean> backfill(Run<?, ?> run, JobListener notifier) {
+        Result result = run.getResult();
+        if (run.isBuilding() || result == null || !result.isBetterOrEqualTo(Result.UNSTABLE)) {
+            skipped.incrementAndGet();
+            return null;
+        }
+        OpsLevelConfig config = notifier.notifierConfig(run, listener.getLogger());
+        if (config == null || usedNotifyStep(run)) {
+            skipped.incrementAndGet();
+            return null;
+        }
+        CompletableFuture<Boolean> delivered = notifier.postDeployToOpsLevel(run, listener, config);
+        // Nothing else will ask for this run's environment
+        RunEnvironmentCache.evict(run);
+        queued.incrementAndGet();
+        return delivered.whenComplete((ok, e) -> (Boolean.TRUE.equals(ok) ? accepted : notAccepted).incrementAndGet());
+    }
+
+    private static boolean usedNotifyStep(Run<?, ?> run) {
+        // Without workflow-api there are no pipeline runs
+        return Jenkins.get().getPlugin("workflow-api") != null && NotifyStepHistory.usedNotifyStep(run);
+    }
+
+    private static void drain(List<CompletableFuture<Boolean>> batch) throws InterruptedException {
+        // Deliveries always complete, once accepted or given up on
+        try {
+            CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            // Counted as not accepted
+        }
+        batch.clear();
+    }
+
+    public List<String> getJobNames() {
+        return jobNames;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getCurrentJob() {
+        return currentJob;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getNotAccepted() {
+        return notAccepted.get();
+    }
+
+    public String getSummary() {
+        return scanned.get() + " runs scanned, " + skipped.get() + " skipped, " + queued.get() + " deploys sent, " +
+               accepted.get() + " accepted, " + notAccepted.get() + " not accepted";
+    }
+
+    static class Checkpoints {
+        // The last build number backfilled for each job, by full name
+
+        private final File file;
+        private final Properties numbers = new Properties();
+
+        Checkpoints(File file) {
+            this.file = file;
+            if (file.exists()) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    numbers.load(in);
+                } catch (IOException e) {
+                    logger.warn("Could not read OpsLevel backfill checkpoints, starting over. {}", e.toString());
+                }
+            }
+        }
+
+        synchronized int get(String jobName) {
+            try {
+                return Integer.parseInt(numbers.getProperty(jobName, "0"));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        synchronized void put(String jobName, int buildNumber) throws IOException {
+            numbers.setProperty(jobName, Integer.toString(buildNumber));
+            File directory = file.getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            // Replaced in one go, a crash leaves the old checkpoints rather than half of the new ones
+            File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                numbers.store(out, "Last build backfilled to OpsLevel, by job");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
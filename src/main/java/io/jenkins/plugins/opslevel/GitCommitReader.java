@@ -0,0 +1,433 @@
+package io.jenkins.plugins.opslevel;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+public class GitCommitReader {
+    // Reads a commit straight out of a repository's object database, so we don't have to fork git for every
+    // deploy. Handles loose objects and version 2 pack indexes, including deltified entries, and follows
+    // .git files, linked worktrees and alternates. Only the commit object itself is read, never its diff.
+
+    private static final int CACHE_SIZE = 256;
+    // Commits are immutable, so a SHA always describes the same commit whichever repository it came from
+    private static final Map<String, CommitInfo> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, CommitInfo>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CommitInfo> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private static final int OBJ_COMMIT = 1;
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+    private static final int PACK_INDEX_MAGIC = 0xff744f63;
+    // A commit this big is not something we want to hold in memory
+    private static final long MAX_OBJECT_SIZE = 16L * 1024 * 1024;
+
+    private final List<File> objectDirectories;
+
+    private GitCommitReader(List<File> objectDirectories) {
+        this.objectDirectories = objectDirectories;
+    }
+
+    // Returns null when the work tree is not a git repository or does not contain the commit
+    public static CommitInfo read(File workTree, String sha) throws IOException {
+        if (sha == null) {
+            return null;
+        }
+        sha = sha.trim().toLowerCase(Locale.ROOT);
+        if (!isSha(sha)) {
+            return null;
+        }
+        CommitInfo cached = cache.get(sha);
+        if (cached != null) {
+            return cached;
+        }
+
+        File gitDir = findGitDir(workTree);
+        if (gitDir == null) {
+            return null;
+        }
+        GitObject object = new GitCommitReader(objectDirectories(gitDir)).readObject(sha);
+        if (object == null || object.type != OBJ_COMMIT) {
+            return null;
+        }
+        CommitInfo info = parseCommit(sha, new String(object.data, StandardCharsets.UTF_8));
+        cache.put(sha, info);
+        return info;
+    }
+
+    // A commit read earlier, possibly on another machine
+    public static CommitInfo cached(String sha) {
+        return sha == null ? null : cache.get(sha.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public static void remember(CommitInfo info) {
+        cache.put(info.sha, info);
+    }
+
+    static CommitInfo parseCommit(String sha, String text) {
+        String authorName = null;
+        String authorEmail = null;
+        long authorTime = -1;
+
+        int bodyStart = text.indexOf("\n\n");
+        String headers = bodyStart < 0 ? text : text.substring(0, bodyStart);
+        for (String line : headers.split("\n")) {
+            if (!line.startsWith("author ")) {
+                continue;
+            }
+            // author Some Name <some@example.org> 1617000000 -0700
+            int emailStart = line.indexOf('<');
+            int emailEnd = line.lastIndexOf('>');
+            if (emailStart < 0 || emailEnd < emailStart) {
+                break;
+            }
+            authorName = line.substring("author ".length(), emailStart).trim();
+            authorEmail = line.substring(emailStart + 1, emailEnd);
+            String[] when = line.substring(emailEnd + 1).trim().split(" ");
+            try {
+                authorTime = Long.parseLong(when[0]);
+            } catch (NumberFormatException e) {
+                authorTime = -1;
+            }
+            break;
+        }
+
+        // Like git's %s, the subject is the first paragraph of the message on one line
+        StringBuilder subject = new StringBuilder();
+        if (bodyStart >= 0) {
+            for (String line : text.substring(bodyStart + 2).split("\n")) {
+                if (line.trim().isEmpty()) {
+                    if (subject.length() > 0) {
+                        break;
+                    }
+                    continue;
+                }
+                if (subject.length() > 0) {
+                    subject.append(' ');
+                }
+                subject.append(line.trim());
+            }
+        }
+        return new CommitInfo(sha, subject.toString(), authorName, authorEmail, authorTime);
+    }
+
+    private static boolean isSha(String sha) {
+        if (sha.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < sha.length(); i++) {
+            if (Character.digit(sha.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static File findGitDir(File workTree) throws IOException {
+        File dotGit = new File(workTree, ".git");
+        if (dotGit.isDirectory()) {
+            return dotGit;
+        }
+        if (!dotGit.isFile()) {
+            return null;
+        }
+        // Submodules and linked worktrees have a .git file pointing at the real directory
+        String content = new String(Files.readAllBytes(dotGit.toPath()), StandardCharsets.UTF_8).trim();
+        if (!content.startsWith("gitdir:")) {
+            return null;
+        }
+        File gitDir = resolve(workTree, content.substring("gitdir:".length()).trim());
+        return gitDir.isDirectory() ? gitDir : null;
+    }
+
+    private static List<File> objectDirectories(File gitDir) throws IOException {
+        // A linked worktree keeps its objects in the main repository
+        File commonDirFile = new File(gitDir, "commondir");
+        if (commonDirFile.isFile()) {
+            String commonDir = new String(Files.readAllBytes(commonDirFile.toPath()), StandardCharsets.UTF_8).trim();
+            gitDir = resolve(gitDir, commonDir);
+        }
+
+        List<File> directories = new ArrayList<>();
+        File objects = new File(gitDir, "objects");
+        directories.add(objects);
+        File alternates = new File(objects, "info/alternates");
+        if (alternates.isFile()) {
+            for (String line : Files.readAllLines(alternates.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    directories.add(resolve(objects, line));
+                }
+            }
+        }
+        return directories;
+    }
+
+    private static File resolve(File base, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+
+    private GitObject readObject(String sha) throws IOException {
+        for (File objects : objectDirectories) {
+            GitObject object = readLooseObject(objects, sha);
+            if (object != null) {
+                return object;
+            }
+        }
+        for (File objects : objectDirectories) {
+            File[] indexes = new File(objects, "pack").listFiles((dir, name) -> name.endsWith(".idx"));
+            if (indexes == null) {
+                continue;
+            }
+            for (File index : indexes) {
+                long offset = findInIndex(index, sha);
+                if (offset >= 0) {
+                    String packName = index.getName().substring(0, index.getName().length() - 4) + ".pack";
+                    try (RandomAccessFile pack = new RandomAccessFile(new File(index.getParentFile(), packName), "r")) {
+                        return readPackedObject(pack, offset);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static GitObject readLooseObject(File objects, String sha) throws IOException {
+        File file = new File(objects, sha.substring(0, 2) + "/" + sha.substring(2));
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new InflaterInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // "<type> <size>\0" followed by the content
+            StringBuilder header = new StringBuilder();
+            int c;
+            while ((c = in.read()) > 0) {
+                header.append((char) c);
+            }
+            String[] parts = header.toString().split(" ");
+            if (c != 0 || parts.length != 2) {
+                throw new IOException("Malformed git object " + sha);
+            }
+            long size = Long.parseLong(parts[1]);
+            if (size > MAX_OBJECT_SIZE) {
+                return null;
+            }
+            int type = parts[0].equals("commit") ? OBJ_COMMIT : 0;
+            return new GitObject(type, readFully(in, (int) size));
+        }
+    }
+
+    private static long findInIndex(File index, String sha) throws IOException {
+        byte[] wanted = new byte[20];
+        for (int i = 0; i < 20; i++) {
+            wanted[i] = (byte) Integer.parseInt(sha.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        try (RandomAccessFile idx = new RandomAccessFile(index, "r")) {
+            if (idx.readInt() != PACK_INDEX_MAGIC || idx.readInt() != 2) {
+                // Version 1 indexes have not been written by git for over a decade
+                return -1;
+            }
+            int first = wanted[0] & 0xff;
+            idx.seek(8 + 4L * 255);
+            long count = idx.readInt() & 0xffffffffL;
+            long low = 0;
+            if (first > 0) {
+                idx.seek(8 + 4L * (first - 1));
+                low = idx.readInt() & 0xffffffffL;
+            }
+            idx.seek(8 + 4L * first);
+            long high = idx.readInt() & 0xffffffffL;
+
+            // Binary search the sorted names that share the first byte
+            long namesStart = 8 + 4L * 256;
+            byte[] name = new byte[20];
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                idx.seek(namesStart + 20 * middle);
+                idx.readFully(name);
+                int comparison = compare(name, wanted);
+                if (comparison == 0) {
+                    long offsetsStart = namesStart + 24 * count;
+                    idx.seek(offsetsStart + 4 * middle);
+                    long offset = idx.readInt() & 0xffffffffL;
+                    if ((offset & 0x80000000L) != 0) {
+                        // Packs over 2GB store the real offset in a table of 64 bit values
+                        idx.seek(offsetsStart + 4 * count + 8 * (offset & 0x7fffffffL));
+                        offset = idx.readLong();
+                    }
+                    return offset;
+                } else if (comparison < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private GitObject readPackedObject(RandomAccessFile pack, long offset) throws IOException {
+        pack.seek(offset);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(pack.getChannel()));
+
+        int c = read(in);
+        int type = (c >> 4) & 7;
+        long size = c & 0x0f;
+        int shift = 4;
+        while ((c & 0x80) != 0) {
+            c = read(in);
+            size |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        }
+        if (size > MAX_OBJECT_SIZE) {
+            return null;
+        }
+
+        if (type == OBJ_OFS_DELTA) {
+            c = read(in);
+            long baseDistance = c & 0x7f;
+            while ((c & 0x80) != 0) {
+                c = read(in);
+                baseDistance = ((baseDistance + 1) << 7) | (c & 0x7f);
+            }
+            byte[] delta = readFully(new InflaterInputStream(in), (int) size);
+            GitObject base = readPackedObject(pack, offset - baseDistance);
+            return base == null ? null : new GitObject(base.type, applyDelta(base.data, delta));
+        }
+        if (type == OBJ_REF_DELTA) {
+            byte[] baseName = readFully(in, 20);
+            byte[] delta = readFully(new InflaterInputStream(in), (int) size);
+            GitObject base = readObject(toHex(baseName));
+            return base == null ? null : new GitObject(base.type, applyDelta(base.data, delta));
+        }
+        return new GitObject(type, readFully(new InflaterInputStream(in), (int) size));
+    }
+
+    static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        long baseSize = readDeltaSize(delta, position);
+        long resultSize = readDeltaSize(delta, position);
+        if (baseSize != base.length || resultSize > MAX_OBJECT_SIZE) {
+            throw new IOException("Git delta does not match its base object");
+        }
+
+        byte[] result = new byte[(int) resultSize];
+        int written = 0;
+        int p = position[0];
+        while (p < delta.length) {
+            int command = delta[p++] & 0xff;
+            if ((command & 0x80) != 0) {
+                // Copy a range of the base object
+                int copyOffset = 0;
+                int copySize = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((command & (1 << bit)) != 0) {
+                        copyOffset |= (delta[p++] & 0xff) << (8 * bit);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((command & (0x10 << bit)) != 0) {
+                        copySize |= (delta[p++] & 0xff) << (8 * bit);
+                    }
+                }
+                if (copySize == 0) {
+                    copySize = 0x10000;
+                }
+                System.arraycopy(base, copyOffset, result, written, copySize);
+                written += copySize;
+            } else if (command != 0) {
+                // Insert the next bytes of the delta as they are
+                System.arraycopy(delta, p, result, written, command);
+                p += command;
+                written += command;
+            } else {
+                throw new IOException("Unexpected git delta instruction");
+            }
+        }
+        if (written != result.length) {
+            throw new IOException("Git delta produced the wrong size");
+        }
+        return result;
+    }
+
+    private static long readDeltaSize(byte[] delta, int[] position) {
+        long size = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = delta[position[0]++] & 0xff;
+            size |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return size;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static int read(InputStream in) throws IOException {
+        int c = in.read();
+        if (c < 0) {
+            throw new EOFException("Unexpected end of git pack");
+        }
+        return c;
+    }
+
+    private static byte[] readFully(InputStream in, int size) throws IOException {
+        byte[] data = new byte[size];
+        int read = 0;
+        while (read < size) {
+            int n = in.read(data, read, size - read);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of git object");
+            }
+            read += n;
+        }
+        return data;
+    }
+
+    private static class GitObject {
+        final int type;
+        final byte[] data;
+
+        GitObject(int type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+}
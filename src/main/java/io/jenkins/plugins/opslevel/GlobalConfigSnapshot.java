@@ -0,0 +1,53 @@
+package io.jenkins.plugins.opslevel;
+
+public final class GlobalConfigSnapshot {
+    // The global configuration as every build reads it. Published when the configuration is saved or loaded
+    // and shared by all builds, so it can't be changed: it keeps its own copy and never hands it out.
+
+    private final OpsLevelConfig config;
+
+    public GlobalConfigSnapshot(OpsLevelConfig config) {
+        this.config = config.copy();
+    }
+
+    public boolean isRun() {
+        return config.run;
+    }
+
+    public String getWebhookUrl() {
+        return config.webhookUrl;
+    }
+
+    public String getServiceAliasTemplate() {
+        return config.serviceAliasTemplate;
+    }
+
+    public String getEnvironment() {
+        return config.environment;
+    }
+
+    public String getDescription() {
+        return config.description;
+    }
+
+    public String getDeployerId() {
+        return config.deployerId;
+    }
+
+    public String getDeployerEmail() {
+        return config.deployerEmail;
+    }
+
+    public String getDeployerName() {
+        return config.deployerName;
+    }
+
+    public String getIgnoreList() {
+        return config.ignoreList;
+    }
+
+    // Fills in whatever a job or pipeline step left empty
+    public void populateEmptyValuesOf(OpsLevelConfig jobConfig) {
+        jobConfig.populateEmptyValuesFrom(config);
+    }
+}
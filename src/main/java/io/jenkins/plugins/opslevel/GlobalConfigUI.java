@@ -5,6 +5,17 @@ import hudson.model.Descriptor;
 import hudson.model.Run;
 import hudson.model.listeners.RunListener;
 import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.util.ListBoxModel;
+import io.jenkins.plugins.opslevel.delivery.BackpressurePolicy;
+import io.jenkins.plugins.opslevel.delivery.CircuitBreakers;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import io.jenkins.plugins.opslevel.delivery.OpsLevelHttpClient;
+import io.jenkins.plugins.opslevel.delivery.RateLimiter;
+import io.jenkins.plugins.opslevel.delivery.WebhookSender;
+import io.jenkins.plugins.opslevel.delivery.RetryPolicy;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
@@ -13,6 +24,8 @@ import org.kohsuke.stapler.StaplerRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 
 @Extension
 public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describable<GlobalConfigUI> {
@@ -31,6 +44,32 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
     public static final class DescriptorImpl extends Descriptor<GlobalConfigUI> {
         private OpsLevelConfig globalConfig = new OpsLevelConfig();
 
+        // Read by every build, so it is only rebuilt when the configuration is saved or reloaded
+        private transient volatile GlobalConfigSnapshot snapshot = new GlobalConfigSnapshot(new OpsLevelConfig());
+        private transient volatile IgnoreListMatcher ignoreListMatcher = IgnoreListMatcher.compile("");
+
+        // How deploys are delivered, rather than what is in them
+        private int deliveryThreads = DeliveryQueue.DEFAULT_THREADS;
+        private int deliveryQueueCapacity = DeliveryQueue.DEFAULT_CAPACITY;
+        private String backpressurePolicy = BackpressurePolicy.SPILL.name();
+        private int maxBatchSize = DeliveryQueue.DEFAULT_MAX_BATCH_SIZE;
+        private long maxLingerMillis = DeliveryQueue.DEFAULT_MAX_LINGER_MILLIS;
+        private int connectTimeoutSeconds = OpsLevelHttpClient.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+        private int readTimeoutSeconds = OpsLevelHttpClient.DEFAULT_READ_TIMEOUT_SECONDS;
+        private int callTimeoutSeconds = OpsLevelHttpClient.DEFAULT_CALL_TIMEOUT_SECONDS;
+        private int keepAliveSeconds = OpsLevelHttpClient.DEFAULT_KEEP_ALIVE_SECONDS;
+        private int maxDeliveryAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+        private long retryBackoffMillis = RetryPolicy.DEFAULT_INITIAL_BACKOFF_MILLIS;
+        private int maxRetryBackoffSeconds = (int) (RetryPolicy.DEFAULT_MAX_BACKOFF_MILLIS / 1000);
+        private int circuitBreakerThreshold = CircuitBreakers.DEFAULT_FAILURE_THRESHOLD;
+        private int circuitBreakerOpenSeconds = (int) (CircuitBreakers.DEFAULT_OPEN_MILLIS / 1000);
+        private int maxPostsPerMinute = RateLimiter.DEFAULT_POSTS_PER_MINUTE;
+        private int rateLimitBurst = RateLimiter.DEFAULT_BURST;
+        private boolean compressRequests = false;
+        private int compressThresholdBytes = WebhookSender.DEFAULT_COMPRESS_THRESHOLD_BYTES;
+        private int maxResponseBytes = WebhookSender.DEFAULT_MAX_RESPONSE_BYTES;
+        private int consoleWaitSeconds = JobListener.DEFAULT_CONSOLE_WAIT_SECONDS;
+
         public DescriptorImpl() {
             super();
             try {
@@ -39,6 +78,23 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
             }
         }
 
+        public static DescriptorImpl get() {
+            return ExtensionList.lookupSingleton(DescriptorImpl.class);
+        }
+
+        // The delivery queue is shared by the whole plugin, so it is set up once here and again whenever the
+        // configuration is saved, rather than by whoever happens to load the descriptor
+        @Initializer(after = InitMilestone.PLUGINS_STARTED, before = InitMilestone.JOB_LOADED)
+        public static void applyDeliverySettingsOnStartup() {
+            get().applyDeliverySettings();
+        }
+
+        @Override
+        public synchronized void load() {
+            super.load();
+            publish();
+        }
+
         public boolean getRun() {
             return globalConfig.run;
         }
@@ -75,6 +131,91 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
             return globalConfig.ignoreList;
         }
 
+        public int getDeliveryThreads() {
+            return deliveryThreads;
+        }
+
+        public int getDeliveryQueueCapacity() {
+            return deliveryQueueCapacity;
+        }
+
+        public String getBackpressurePolicy() {
+            return backpressurePolicy;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public long getMaxLingerMillis() {
+            return maxLingerMillis;
+        }
+
+        public int getConnectTimeoutSeconds() {
+            return connectTimeoutSeconds;
+        }
+
+        public int getReadTimeoutSeconds() {
+            return readTimeoutSeconds;
+        }
+
+        public int getCallTimeoutSeconds() {
+            return callTimeoutSeconds;
+        }
+
+        public int getKeepAliveSeconds() {
+            return keepAliveSeconds;
+        }
+
+        public int getMaxDeliveryAttempts() {
+            return maxDeliveryAttempts;
+        }
+
+        public long getRetryBackoffMillis() {
+            return retryBackoffMillis;
+        }
+
+        public int getMaxRetryBackoffSeconds() {
+            return maxRetryBackoffSeconds;
+        }
+
+        public int getCircuitBreakerThreshold() {
+            return circuitBreakerThreshold;
+        }
+
+        public int getCircuitBreakerOpenSeconds() {
+            return circuitBreakerOpenSeconds;
+        }
+
+        public int getMaxPostsPerMinute() {
+            return maxPostsPerMinute;
+        }
+
+        public int getRateLimitBurst() {
+            return rateLimitBurst;
+        }
+
+        public boolean getCompressRequests() {
+            return compressRequests;
+        }
+
+        public int getCompressThresholdBytes() {
+            return compressThresholdBytes;
+        }
+
+        public int getMaxResponseBytes() {
+            return maxResponseBytes;
+        }
+
+        public int getConsoleWaitSeconds() {
+            return consoleWaitSeconds;
+        }
+
+        // Live retry counts and circuit breaker states, for the configuration page
+        public DeliveryQueue getDeliveryQueue() {
+            return DeliveryQueue.get();
+        }
+
         @DataBoundSetter
         public void setRun(boolean run) {
             globalConfig.run = run;
@@ -120,6 +261,128 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
             globalConfig.ignoreList = cleanupValue(ignoreList);
         }
 
+        @DataBoundSetter
+        public void setDeliveryThreads(int deliveryThreads) {
+            this.deliveryThreads = Math.max(0, deliveryThreads);
+        }
+
+        @DataBoundSetter
+        public void setDeliveryQueueCapacity(int deliveryQueueCapacity) {
+            this.deliveryQueueCapacity = Math.max(1, deliveryQueueCapacity);
+        }
+
+        @DataBoundSetter
+        public void setBackpressurePolicy(String backpressurePolicy) {
+            this.backpressurePolicy = BackpressurePolicy.fromString(backpressurePolicy).name();
+        }
+
+        @DataBoundSetter
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = Math.max(1, maxBatchSize);
+        }
+
+        @DataBoundSetter
+        public void setMaxLingerMillis(long maxLingerMillis) {
+            this.maxLingerMillis = Math.max(0, maxLingerMillis);
+        }
+
+        @DataBoundSetter
+        public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+            this.connectTimeoutSeconds = Math.max(1, connectTimeoutSeconds);
+        }
+
+        @DataBoundSetter
+        public void setReadTimeoutSeconds(int readTimeoutSeconds) {
+            this.readTimeoutSeconds = Math.max(1, readTimeoutSeconds);
+        }
+
+        @DataBoundSetter
+        public void setCallTimeoutSeconds(int callTimeoutSeconds) {
+            this.callTimeoutSeconds = Math.max(1, callTimeoutSeconds);
+        }
+
+        @DataBoundSetter
+        public void setKeepAliveSeconds(int keepAliveSeconds) {
+            this.keepAliveSeconds = Math.max(1, keepAliveSeconds);
+        }
+
+        @DataBoundSetter
+        public void setMaxDeliveryAttempts(int maxDeliveryAttempts) {
+            this.maxDeliveryAttempts = Math.max(1, maxDeliveryAttempts);
+        }
+
+        @DataBoundSetter
+        public void setRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = Math.max(1, retryBackoffMillis);
+        }
+
+        @DataBoundSetter
+        public void setMaxRetryBackoffSeconds(int maxRetryBackoffSeconds) {
+            this.maxRetryBackoffSeconds = Math.max(1, maxRetryBackoffSeconds);
+        }
+
+        @DataBoundSetter
+        public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+            this.circuitBreakerThreshold = Math.max(1, circuitBreakerThreshold);
+        }
+
+        @DataBoundSetter
+        public void setCircuitBreakerOpenSeconds(int circuitBreakerOpenSeconds) {
+            this.circuitBreakerOpenSeconds = Math.max(0, circuitBreakerOpenSeconds);
+        }
+
+        @DataBoundSetter
+        public void setMaxPostsPerMinute(int maxPostsPerMinute) {
+            this.maxPostsPerMinute = Math.max(0, maxPostsPerMinute);
+        }
+
+        @DataBoundSetter
+        public void setRateLimitBurst(int rateLimitBurst) {
+            this.rateLimitBurst = Math.max(1, rateLimitBurst);
+        }
+
+        @DataBoundSetter
+        public void setCompressRequests(boolean compressRequests) {
+            this.compressRequests = compressRequests;
+        }
+
+        @DataBoundSetter
+        public void setCompressThresholdBytes(int compressThresholdBytes) {
+            this.compressThresholdBytes = Math.max(0, compressThresholdBytes);
+        }
+
+        @DataBoundSetter
+        public void setMaxResponseBytes(int maxResponseBytes) {
+            this.maxResponseBytes = Math.max(0, maxResponseBytes);
+        }
+
+        @DataBoundSetter
+        public void setConsoleWaitSeconds(int consoleWaitSeconds) {
+            this.consoleWaitSeconds = Math.max(0, consoleWaitSeconds);
+        }
+
+        public ListBoxModel doFillBackpressurePolicyItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+                items.add(policy.getDisplayName(), policy.name());
+            }
+            return items;
+        }
+
+        public void applyDeliverySettings() {
+            DeliveryQueue.get().configure(deliveryThreads, deliveryQueueCapacity,
+                                          BackpressurePolicy.fromString(backpressurePolicy));
+            DeliveryQueue.get().configureBatching(maxBatchSize, maxLingerMillis);
+            DeliveryQueue.get().configureRetries(maxDeliveryAttempts, retryBackoffMillis,
+                                                 TimeUnit.SECONDS.toMillis(maxRetryBackoffSeconds));
+            DeliveryQueue.get().configureCircuitBreakers(circuitBreakerThreshold,
+                                                         TimeUnit.SECONDS.toMillis(circuitBreakerOpenSeconds));
+            DeliveryQueue.get().configureRateLimit(maxPostsPerMinute, rateLimitBurst);
+            DeliveryQueue.get().configureCompression(compressRequests, compressThresholdBytes);
+            DeliveryQueue.get().configureResponseLimit(maxResponseBytes);
+            OpsLevelHttpClient.configure(connectTimeoutSeconds, readTimeoutSeconds, callTimeoutSeconds, keepAliveSeconds);
+        }
+
         private static String cleanupValue(String someValue) {
             if (someValue == null) {
                 return "";
@@ -127,9 +390,24 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
             return someValue.trim();
         }
 
-        public OpsLevelConfig getOpsLevelConfig() {
-            load();
-            return globalConfig;
+        public GlobalConfigSnapshot getOpsLevelConfig() {
+            return snapshot;
+        }
+
+        public IgnoreListMatcher getIgnoreListMatcher() {
+            return ignoreListMatcher;
+        }
+
+        private void publish() {
+            GlobalConfigSnapshot config = new GlobalConfigSnapshot(globalConfig);
+            ignoreListMatcher = IgnoreListMatcher.compile(config.getIgnoreList());
+            // Parse the templates now rather than in the first build that needs them
+            for (String template : new String[] {config.getServiceAliasTemplate(), config.getEnvironment(),
+                                                 config.getDescription(), config.getDeployerId(),
+                                                 config.getDeployerEmail(), config.getDeployerName()}) {
+                Template.compile(template);
+            }
+            snapshot = config;
         }
 
         public String getDisplayName() {
@@ -140,6 +418,8 @@ public class GlobalConfigUI extends RunListener<Run<?, ?>> implements Describabl
         public boolean configure(StaplerRequest req, JSONObject formData) {
             req.bindJSON(this, formData);
             save();
+            publish();
+            applyDeliverySettings();
             return true;
         }
 
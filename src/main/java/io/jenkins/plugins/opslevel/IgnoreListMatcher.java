@@ -0,0 +1,257 @@
+package io.jenkins.plugins.opslevel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class IgnoreListMatcher {
+    // The global ignore list, compiled once when the configuration is saved. Each comma separated rule is one of:
+    //   backend deploy - staging   an exact job name, as shown in Jenkins
+    //   team-a/                    everything inside a folder (matched against the job's full path)
+    //   *-staging                  a glob, where * matches any run of characters and ? matches one character
+    //   re:.*-(dev|qa)             a regular expression
+    // Exact names are a hash lookup, folders a walk down a trie of path segments and all globs together one
+    // automaton that reads each character of the name once, so none of them cost more as the list grows.
+    // Regular expressions keep their own pattern, which leaves their groups and backreferences as written, and
+    // are tried one after another: each one adds to the cost of a match.
+
+    private static final String REGEX_PREFIX = "re:";
+
+    private final Set<String> exactNames = new HashSet<>();
+    private final FolderNode folders = new FolderNode();
+    private final GlobAutomaton globs;
+    private final List<String> regexRules = new ArrayList<>();
+    private final List<Pattern> regexes = new ArrayList<>();
+
+    private IgnoreListMatcher(String ignoreList) {
+        List<String> globRules = new ArrayList<>();
+        if (ignoreList != null) {
+            for (String entry : ignoreList.split(",")) {
+                String rule = entry.trim();
+                if (rule.isEmpty()) {
+                    continue;
+                }
+                if (rule.startsWith(REGEX_PREFIX)) {
+                    try {
+                        regexes.add(Pattern.compile(rule.substring(REGEX_PREFIX.length())));
+                        regexRules.add(rule);
+                    } catch (PatternSyntaxException e) {
+                        // A typo in one rule should not disable the rest of the list
+                    }
+                } else if (rule.endsWith("/")) {
+                    addFolder(rule);
+                } else if (rule.indexOf('*') >= 0 || rule.indexOf('?') >= 0) {
+                    globRules.add(rule);
+                } else {
+                    exactNames.add(rule);
+                }
+            }
+        }
+        globs = globRules.isEmpty() ? null : new GlobAutomaton(globRules);
+    }
+
+    public static IgnoreListMatcher compile(String ignoreList) {
+        return new IgnoreListMatcher(ignoreList);
+    }
+
+    // Returns the rule that matched, or null if this job should be notified
+    public String match(String fullDisplayName, String fullName) {
+        String displayName = fullDisplayName.trim();
+        if (exactNames.contains(displayName)) {
+            return displayName;
+        }
+
+        String folderRule = folders.match(fullName);
+        if (folderRule != null) {
+            return folderRule;
+        }
+
+        if (globs != null) {
+            String rule = globs.match(displayName);
+            if (rule == null) {
+                rule = globs.match(fullName);
+            }
+            if (rule != null) {
+                return rule;
+            }
+        }
+        for (int i = 0; i < regexes.size(); i++) {
+            Pattern regex = regexes.get(i);
+            if (regex.matcher(displayName).matches() || regex.matcher(fullName).matches()) {
+                return regexRules.get(i);
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return exactNames.isEmpty() && folders.children.isEmpty() && globs == null && regexes.isEmpty();
+    }
+
+    private void addFolder(String rule) {
+        FolderNode node = folders;
+        for (String segment : rule.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            node = node.children.computeIfAbsent(segment, s -> new FolderNode());
+        }
+        if (node != folders) {
+            node.rule = rule;
+        }
+    }
+
+    private static class FolderNode {
+        final Map<String, FolderNode> children = new HashMap<>();
+        String rule;
+
+        String match(String fullName) {
+            FolderNode node = this;
+            int start = 0;
+            // The last segment is the job itself, only the folders above it can match
+            int end = fullName.indexOf('/', start);
+            while (end >= 0) {
+                node = node.children.get(fullName.substring(start, end));
+                if (node == null) {
+                    return null;
+                }
+                if (node.rule != null) {
+                    return node.rule;
+                }
+                start = end + 1;
+                end = fullName.indexOf('/', start);
+            }
+            return null;
+        }
+    }
+
+    static class GlobAutomaton {
+        // Every glob at once, as a DFA built lazily by subset construction. A position is a glob and how much of
+        // it has been matched, numbered across all globs. A DFA state is the set of positions the name read so
+        // far could have reached, and each of its transitions is worked out the first time a name needs it.
+        // Only a few states are ever reached in practice, but a pathological list is capped: past MAX_STATES new
+        // states are still worked out, just no longer remembered.
+
+        private static final int MAX_STATES = 10000;
+
+        private final String[] rules;
+        // For each position, the glob it is in and the character it expects next, or END once the glob is done
+        private final int[] positionRule;
+        private final int[] positionChar;
+        private static final int END = -1;
+        private final Map<List<Integer>, State> states = new HashMap<>();
+        private final State start;
+
+        GlobAutomaton(List<String> globs) {
+            rules = globs.toArray(new String[0]);
+            int positions = 0;
+            for (String glob : rules) {
+                positions += glob.length() + 1;
+            }
+            positionRule = new int[positions];
+            positionChar = new int[positions];
+            Set<Integer> initial = new TreeSet<>();
+            int position = 0;
+            for (int rule = 0; rule < rules.length; rule++) {
+                initial.add(position);
+                for (char c : rules[rule].toCharArray()) {
+                    positionRule[position] = rule;
+                    positionChar[position++] = c;
+                }
+                positionRule[position] = rule;
+                positionChar[position++] = END;
+            }
+            start = state(closure(initial));
+        }
+
+        // The first glob in list order that matches the whole name, or null
+        String match(String name) {
+            State state = start;
+            for (int i = 0; i < name.length() && state != null; i++) {
+                state = next(state, name.charAt(i));
+            }
+            return state == null || state.accepts < 0 ? null : rules[state.accepts];
+        }
+
+        private State next(State state, char c) {
+            State next = state.transitions.get(c);
+            if (next != null) {
+                return next == State.DEAD ? null : next;
+            }
+            Set<Integer> reached = new TreeSet<>();
+            for (int position : state.positions) {
+                int expected = positionChar[position];
+                if (expected == '*') {
+                    reached.add(position);
+                } else if (expected == '?' || expected == c) {
+                    reached.add(position + 1);
+                }
+            }
+            next = reached.isEmpty() ? State.DEAD : state(closure(reached));
+            if (next.remembered) {
+                state.transitions.put(c, next);
+            }
+            return next == State.DEAD ? null : next;
+        }
+
+        // A * can also match nothing, so a position in front of one reaches the position after it as well
+        private Set<Integer> closure(Set<Integer> positions) {
+            Set<Integer> closed = new TreeSet<>(positions);
+            for (int position : positions) {
+                while (positionChar[position] == '*') {
+                    closed.add(++position);
+                }
+            }
+            return closed;
+        }
+
+        private State state(Set<Integer> positions) {
+            List<Integer> key = new ArrayList<>(positions);
+            synchronized (states) {
+                State state = states.get(key);
+                if (state != null) {
+                    return state;
+                }
+                int accepts = -1;
+                for (int position : positions) {
+                    if (positionChar[position] == END && (accepts < 0 || positionRule[position] < accepts)) {
+                        accepts = positionRule[position];
+                    }
+                }
+                boolean remember = states.size() < MAX_STATES;
+                state = new State(positions, accepts, remember);
+                if (remember) {
+                    states.put(key, state);
+                }
+                return state;
+            }
+        }
+
+        private static class State {
+            static final State DEAD = new State(new TreeSet<>(), -1, true);
+
+            final int[] positions;
+            // The first glob this state completes, or -1
+            final int accepts;
+            final boolean remembered;
+            final Map<Character, State> transitions = new ConcurrentHashMap<>();
+
+            State(Set<Integer> positions, int accepts, boolean remembered) {
+                this.positions = new int[positions.size()];
+                int i = 0;
+                for (int position : positions) {
+                    this.positions[i++] = position;
+                }
+                this.accepts = accepts;
+                this.remembered = remembered;
+            }
+        }
+    }
+}
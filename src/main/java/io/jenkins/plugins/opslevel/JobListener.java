@@ -2,6 +2,7 @@ package io.jenkins.plugins.opslevel;
 
 import hudson.Extension;
 import hudson.EnvVars;
+import hudson.FilePath;
 import hudson.model.FreeStyleProject;
 import hudson.model.Job;
 import hudson.model.Result;
@@ -9,44 +10,53 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.charset.Charset;
-import java.time.ZonedDateTime;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.InputMismatchException;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import javax.annotation.Nonnull;
 
+import io.jenkins.plugins.opslevel.delivery.Delivery;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import io.jenkins.plugins.opslevel.delivery.DeployPayload;
+import io.jenkins.plugins.opslevel.delivery.DeployPayloadWriter;
+import io.jenkins.plugins.opslevel.metrics.NotifierMetrics;
 import io.jenkins.plugins.opslevel.workflow.PostBuildAction;
-import okhttp3.HttpUrl;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.text.StringSubstitutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Extension
 public class JobListener extends RunListener<Run<?, ?>> {
 
-    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
-    private final OkHttpClient client;
-
     private static final Logger logger = LoggerFactory.getLogger(JobListener.class);
+    private static final NotifierMetrics metrics = NotifierMetrics.get();
+
+    // How long a finished build waits for OpsLevel to answer, so the answer is in its console. By default it
+    // doesn't wait at all: the outcome is on the delivery status page.
+    public static final int DEFAULT_CONSOLE_WAIT_SECONDS = 0;
+
+    // Template variables taken from the commit being deployed, unless the environment already has them
+    public static final String COMMIT_MESSAGE_VARIABLE = "GIT_COMMIT_MESSAGE";
+    public static final String COMMIT_AUTHOR_NAME_VARIABLE = "GIT_COMMIT_AUTHOR_NAME";
+    public static final String COMMIT_AUTHOR_EMAIL_VARIABLE = "GIT_COMMIT_AUTHOR_EMAIL";
+    private static final Set<String> COMMIT_VARIABLES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            COMMIT_MESSAGE_VARIABLE, COMMIT_AUTHOR_NAME_VARIABLE, COMMIT_AUTHOR_EMAIL_VARIABLE)));
 
     public JobListener() {
         super();
-        client = new OkHttpClient();
     }
 
     @Override
@@ -62,12 +72,52 @@ public class JobListener extends RunListener<Run<?, ?>> {
         // Send the webhook on successful deploys. UNSTABLE could be successful depending on how the pipeline is set up
         if (!result.equals(Result.SUCCESS) && !result.equals(Result.UNSTABLE) ) {
             logger.debug("OpsLevel notifier: skipping because run status is " + result.toString());
+            metrics.increment(NotifierMetrics.SKIPPED_RESULT);
+            return;
+        }
+
+        OpsLevelConfig jobConfig = notifierConfig(run, buildConsole);
+        if (jobConfig == null) {
             return;
         }
 
+        // The payload is built here, but the post itself is made by the delivery queue so a slow
+        // OpsLevel endpoint does not hold up the completion of this run
+        List<Delivery> deliveries = queueDeploy(run, listener, jobConfig, null, null);
+        if (deliveries != null) {
+            awaitOutcome(deliveries, buildConsole, GlobalConfigUI.DescriptorImpl.get().getConsoleWaitSeconds());
+        }
+    }
+
+    // The build console is closed as soon as the listeners return. When configured to, give OpsLevel a little
+    // while to answer before letting the run finish. Whatever happens after that is shown on the delivery status
+    // page instead.
+    private static void awaitOutcome(List<Delivery> deliveries, PrintStream buildConsole, int waitSeconds) {
+        if (waitSeconds > 0) {
+            try {
+                allAccepted(deliveries).get(waitSeconds, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Still going, see below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                return;
+            }
+        }
+        for (Delivery delivery : deliveries) {
+            delivery.detachConsole();
+        }
+        buildConsole.println("OpsLevel notifier: the deploy is " + (waitSeconds > 0 ? "still being delivered" : "queued") +
+                             ". Its outcome will be shown under Manage Jenkins > OpsLevel Deliveries.");
+    }
+
+    // The configuration to notify OpsLevel of this run with, or null when it should not be notified
+    OpsLevelConfig notifierConfig(Run run, PrintStream buildConsole) {
         Job project = run.getParent();
         OpsLevelConfig jobConfig = null;
-        OpsLevelConfig globalConfig = new GlobalConfigUI.DescriptorImpl().getOpsLevelConfig();
+        GlobalConfigUI.DescriptorImpl descriptor = GlobalConfigUI.DescriptorImpl.get();
+        GlobalConfigSnapshot globalConfig = descriptor.getOpsLevelConfig();
 
         // Freestyle builds can add our notifier as a post-build action.
         // If present it may contain params
@@ -75,9 +125,10 @@ public class JobListener extends RunListener<Run<?, ?>> {
             jobConfig = GetOpsLevelConfigFromFreestyleJob((FreeStyleProject) project);
         }
         if (jobConfig == null) {
-            if (!globalConfig.run) {
+            if (!globalConfig.isRun()) {
                 logger.debug("OpsLevel notifier: skipping because it's disabled globally");
-                return;
+                metrics.increment(NotifierMetrics.SKIPPED_DISABLED);
+                return null;
             }
             logger.debug("OpsLevel notifier: publisher not found on this project");
             jobConfig = new OpsLevelConfig();
@@ -85,60 +136,119 @@ public class JobListener extends RunListener<Run<?, ?>> {
             String message = "OpsLevel notifier: skipping because this project disabled notify";
             buildConsole.println(message);
             logger.debug(message);
-            return;
+            metrics.increment(NotifierMetrics.SKIPPED_DISABLED);
+            return null;
         }
 
         // Notifications can be disabled based on project name
-        if (!globalConfig.ignoreList.isEmpty()) {
-            String[] ignoredJobs = globalConfig.ignoreList.split(",");
-            String thisJobName = project.getFullDisplayName().trim();
-            for (String jobName : ignoredJobs) {
-                if (jobName.trim().equals(thisJobName)) {
-                    String message = "OpsLevel notifier: skipping because global configuration says to ignore " +
-                                     "builds named \"" + jobName + "\"";
-                    buildConsole.println(message);
-                    logger.debug(message);
-                    return;
-                }
-            }
+        String ignoreRule = descriptor.getIgnoreListMatcher().match(project.getFullDisplayName(), project.getFullName());
+        if (ignoreRule != null) {
+            String message = "OpsLevel notifier: skipping because global configuration says to ignore " +
+                             "builds matching \"" + ignoreRule + "\"";
+            buildConsole.println(message);
+            logger.debug(message);
+            metrics.increment(NotifierMetrics.SKIPPED_IGNORED);
+            return null;
         }
 
-        jobConfig.populateEmptyValuesFrom(globalConfig);
+        globalConfig.populateEmptyValuesOf(jobConfig);
 
-        if (jobConfig.webhookUrl.isEmpty()) {
+        if (jobConfig.getWebhookUrls().isEmpty()) {
             logger.warn("OpsLevel notifier: skipping because webhook URL not configured");
-            return;
+            metrics.increment(NotifierMetrics.SKIPPED_NO_WEBHOOK);
+            return null;
         }
 
         // Pipelines are different from freestyle builds. Pipelines can notify multiple times, or not at
         // all (suppress the global notifier)
-        // If this property is null, respect the global notifier. If it's non-null, our notifier appeared
+        // If the run has no marker, respect the global notifier. If it has one, our notifier appeared
         // somewhere in the pipeline script and has been handled already - nothing to do here.
-        if (project.getProperty(OpsLevelJobProperty.class) != null) {
+        if (OpsLevelNotifiedAction.isNotified(run)) {
             logger.debug("OpsLevel notifier: skipping because pipeline contained OpsLevel notify step");
-            return;
+            metrics.increment(NotifierMetrics.SKIPPED_PIPELINE_STEP);
+            return null;
         }
 
-        postDeployToOpsLevel(run, listener, jobConfig);
-        buildConsole.close();
+        return jobConfig;
+    }
+
+    public CompletableFuture<Boolean> postDeployToOpsLevel(Run run, @Nonnull TaskListener listener,
+                                                           OpsLevelConfig opsLevelConfig) {
+        return postDeployToOpsLevel(run, listener, opsLevelConfig, null);
     }
 
-    public void postDeployToOpsLevel(Run run, @Nonnull TaskListener listener,
-                                     OpsLevelConfig opsLevelConfig) {
+    // The workspace is where to look for commit details. When it's null we work it out from the run.
+    public CompletableFuture<Boolean> postDeployToOpsLevel(Run run, @Nonnull TaskListener listener,
+                                                           OpsLevelConfig opsLevelConfig, FilePath workspace) {
+        return postDeployToOpsLevel(run, listener, opsLevelConfig, workspace, null);
+    }
+
+    // stepId tells the opsLevelNotify steps of a pipeline run apart, or is null for the global notifier
+    public CompletableFuture<Boolean> postDeployToOpsLevel(Run run, @Nonnull TaskListener listener,
+                                                           OpsLevelConfig opsLevelConfig, FilePath workspace,
+                                                           String stepId) {
+        List<Delivery> deliveries = queueDeploy(run, listener, opsLevelConfig, workspace, stepId);
+        return deliveries == null ? CompletableFuture.completedFuture(false) : allAccepted(deliveries);
+    }
+
+    // Queues the deploy for every webhook URL and returns the deliveries, or null when nothing could be queued.
+    // The deliveries print to the build console until it is detached from them.
+    public List<Delivery> queueDeploy(Run run, @Nonnull TaskListener listener, OpsLevelConfig opsLevelConfig,
+                                      FilePath workspace, String stepId) {
         PrintStream buildConsole = listener.getLogger();
+        long start = System.nanoTime();
 
-        String webhookUrl = opsLevelConfig.webhookUrl;
+        List<String> webhookUrls = opsLevelConfig.getWebhookUrls();
+        if (webhookUrls.isEmpty()) {
+            logger.warn("OpsLevel notifier: skipping because webhook URL not configured");
+            metrics.increment(NotifierMetrics.SKIPPED_NO_WEBHOOK);
+            buildConsole.println("Error :No OpsLevel webhook URL is configured. Could not publish deploy to OpsLevel.");
+            return null;
+        }
         try {
-            JsonObject payload = buildDeployPayload(opsLevelConfig, run, listener);
-            buildConsole.println("Publishing deploy to OpsLevel via: " + webhookUrl);
-            httpPost(webhookUrl, payload, buildConsole);
+            // Built once however many accounts we notify, each target then gets its own delivery and retries
+            DeployPayload payload = buildDeployPayload(opsLevelConfig, run, listener, workspace, stepId);
+            byte[] encoded = DeployPayloadWriter.toBytes(payload);
+            metrics.recordSince(NotifierMetrics.PAYLOAD_TIME, start);
+
+            List<Delivery> deliveries = new ArrayList<>();
+            for (String webhookUrl : webhookUrls) {
+                buildConsole.println("Publishing deploy to OpsLevel via: " + webhookUrl);
+                Delivery delivery = new Delivery(webhookUrl, encoded, payload.dedupId,
+                                                 run.getExternalizableId(), payload.service, buildConsole);
+                if (webhookUrls.size() > 1) {
+                    delivery.getCompletion().whenComplete((accepted, error) -> delivery.println(
+                            (Boolean.TRUE.equals(accepted) ? "OpsLevel accepted the deploy sent via: "
+                                                           : "OpsLevel did not accept the deploy sent via: ") +
+                            webhookUrl));
+                }
+                deliveries.add(delivery);
+                // Queued one after another but posted by the delivery workers, so the targets are
+                // notified concurrently
+                DeliveryQueue.get().submit(delivery);
+            }
+            allAccepted(deliveries).whenComplete((accepted, error) -> metrics.recordSince(NotifierMetrics.TOTAL_TIME, start));
+            return deliveries;
         } catch(Exception e) {
             String message = e.toString() + ". Could not publish deploy to OpsLevel.";
             logger.error(message);
+            metrics.increment(NotifierMetrics.FAILED_OTHER);
             buildConsole.println("Error :" + message);
+            return null;
         }
     }
 
+    public static CompletableFuture<Boolean> allAccepted(List<Delivery> deliveries) {
+        // True once every target has accepted the deploy, false if any of them gave up on it
+        List<CompletableFuture<Boolean>> completions = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            completions.add(delivery.getCompletion());
+        }
+        return CompletableFuture.allOf(completions.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> completions.stream().allMatch(
+                        completion -> !completion.isCompletedExceptionally() && Boolean.TRUE.equals(completion.join())));
+    }
+
     private OpsLevelConfig GetOpsLevelConfigFromFreestyleJob(FreeStyleProject project) {
         for (Object publisher : project.getPublishersList().toMap().values()) {
             if (publisher instanceof PostBuildAction) {
@@ -148,66 +258,33 @@ public class JobListener extends RunListener<Run<?, ?>> {
         return null;
     }
 
-    private void httpPost(String webhookUrl, JsonObject payload, PrintStream buildConsole) throws IOException {
-        // Get the plugin version to pass through as a request parameter
-        final Properties properties = new Properties();
-        String version = "";
-        try {
-            // TODO: In development this seems to pull from src/main/config.properties, instead of target/classes/properties
-            //       Once the plugin is compiled it will get the correct version string, but we could not figure out how
-            //       to get it looking at the right place in development
-            properties.load(getClass().getClassLoader().getResourceAsStream("config.properties"));
-            version = properties.getProperty("plugin.version");
-        } catch (IOException e) {
-            logger.error("Project properties does not exist. {}", e.toString());
-        }
-
-        HttpUrl httpUrl = HttpUrl.parse(webhookUrl);
-        if (httpUrl == null) {
-            throw new InputMismatchException("Webhook URL is invalid");
-        }
-        HttpUrl.Builder httpBuilder = httpUrl.newBuilder();
-        // Append plugin version as query param for visibility
-        String agent = "jenkins-" + version;
-        HttpUrl url = httpBuilder.addQueryParameter("agent", agent).build();
-
-        // Build the body
-        String jsonString = payload.toString();
-        logger.debug("Sending OpsLevel Integration payload:\n{}", jsonString);
-
-        RequestBody body = RequestBody.create(JSON_MEDIA_TYPE, jsonString);
-
-        // Finally, put the request together
-        Request request = new Request.Builder()
-        .url(url)
-        .post(body)
-        .build();
-
-        try {
-            Response response = client.newCall(request).execute();
-            logger.debug("Invocation of OpsLevel webhook {} successful", url);
-            ResponseBody responseBody = response.body();
-            if (responseBody != null) {
-                String message = "OpsLevel Response: " + responseBody.string() + "\n";
-                buildConsole.print(message);
-                logger.info(message);
-            }
-        } catch (Exception e) {
-            logger.warn("Invocation of OpsLevel webhook {} failed: {}", url, e.toString());
-            throw e;
-        }
-    }
-
-    private JsonObject buildDeployPayload(OpsLevelConfig opsLevelConfig, Run run, TaskListener listener)
+    private DeployPayload buildDeployPayload(OpsLevelConfig opsLevelConfig, Run run, TaskListener listener,
+                                             FilePath workspace, String stepId)
     throws InterruptedException, IOException {
-        EnvVars env = run.getEnvironment(listener);
-
-        // Default to UUID. Perhaps allow this to be set with envVars ${JOB_NAME}_${BUILD_ID} / ${BUILD_TAG}
-        String dedupId = UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        // Shared with the other notifications of this run
+        EnvVars env = RunEnvironmentCache.get(run, listener);
+        metrics.recordSince(NotifierMetrics.ENV_TIME, start);
 
         // It didn't make sense to allow overriding deploy number. Use the value from Jenkin
         String deployNumber = env.get("BUILD_NUMBER");
 
+        DeployPayload payload = new DeployPayload();
+
+        // Details of the commit, if available. Its sha and branch come with the environment. Its message and
+        // author are read from the workspace, which can mean finding the agent and asking it, so only when
+        // something uses them: a template that refers to them, or a description left empty, which falls back to
+        // the commit message. Builds without git never look for their workspace.
+        boolean commitVariablesUsed = !Collections.disjoint(templateVariables(opsLevelConfig), COMMIT_VARIABLES);
+        boolean commitDetailsUsed = commitVariablesUsed || stringSub(opsLevelConfig.description, env).isEmpty();
+        Supplier<FilePath> commitWorkspace = () -> workspace != null ? workspace : CommitMetadata.findWorkspace(run, env);
+        start = System.nanoTime();
+        payload.commit = buildCommit(env, commitDetailsUsed ? commitWorkspace : null);
+        metrics.recordSince(NotifierMetrics.COMMIT_TIME, start);
+        if (payload.commit != null && commitVariablesUsed) {
+            addCommitVariables(env, payload.commit);
+        }
+
         // URL of the asset that was just deployed
         String deployUrl = stringSub(opsLevelConfig.deployUrl, env);
         if (deployUrl.isEmpty()) {
@@ -216,7 +293,7 @@ public class JobListener extends RunListener<Run<?, ?>> {
 
         // ISO datetime with no milliseconds
         DateTimeFormatter dtf = DateTimeFormatter.ISO_INSTANT;
-        String deployedAt = ZonedDateTime.now().format(dtf);
+        String deployedAt = dtf.format(deployedAt(run));
 
         // Typically Test/Staging/Production
         String environment = stringSub(opsLevelConfig.environment, env);
@@ -235,44 +312,72 @@ public class JobListener extends RunListener<Run<?, ?>> {
         }
 
         // Details of who deployed, if available
-        JsonObject deployerJson = buildDeployerJson(opsLevelConfig, env);
-
-        // Details of the commit, if available
-        JsonObject commitJson = buildCommitJson(env);
+        payload.deployer = buildDeployer(opsLevelConfig, env);
 
         // Description that is hopefully meaningful
         String description = stringSub(opsLevelConfig.description, env);
         if (description.isEmpty()) {
-            if (commitJson != null && commitJson.containsKey("message")) {
-                description = commitJson.getString("message");
+            if (payload.commit != null && payload.commit.message != null) {
+                description = payload.commit.message;
             } else {
                 description = stringSub("Jenkins Deploy #${BUILD_NUMBER}", env);
             }
         }
 
-        JsonObjectBuilder payload = Json.createObjectBuilder();
-        payload.add("dedup_id", dedupId);
-        payload.add("deploy_number", deployNumber);
-        payload.add("deploy_url", deployUrl);
-        payload.add("deployed_at", deployedAt);
-        payload.add("description", description);
-        payload.add("environment", environment);
-        payload.add("service", serviceAlias);
-
-        if (deployerJson != null) {
-            payload.add("deployer", deployerJson);
+        payload.dedupId = dedupId(run, environment, serviceAlias, stepId);
+        payload.deployNumber = deployNumber;
+        payload.deployUrl = deployUrl;
+        payload.deployedAt = deployedAt;
+        payload.description = description;
+        payload.environment = environment;
+        payload.service = serviceAlias;
+        return payload;
+    }
+
+    private static Instant deployedAt(Run run) {
+        // When the run finished, which for a backfilled deploy is long ago. A run still going (a pipeline
+        // step) has no duration yet, so it deployed just now.
+        if (run.isBuilding() || run.getDuration() <= 0) {
+            return Instant.now();
         }
+        return Instant.ofEpochMilli(run.getStartTimeInMillis() + run.getDuration());
+    }
+
+    static String dedupId(Run run, String environment, String serviceAlias, String stepId) {
+        // The same deploy always gets the same id, so OpsLevel and the delivery ledger can recognise it
+        // when it is sent again by a retry, a replay after a restart or a resumed pipeline step. Build numbers
+        // come back when a job is deleted and recreated, or its next build number is reset, so the run's
+        // scheduled time tells those runs apart. The global notifier's deploys keep the -1 they have always had.
+        String identity = run.getParent().getFullName() + "\n" + run.getNumber() + "\n" + run.getTimeInMillis() +
+                          "\n" + environment + "\n" + serviceAlias + "\n" + (stepId == null ? "-1" : stepId);
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)).toString();
+    }
 
-        if (commitJson != null) {
-            payload.add("commit", commitJson);
+    // Every variable the templates of this configuration refer to
+    static Set<String> templateVariables(OpsLevelConfig config) {
+        Set<String> variables = new HashSet<>();
+        for (String template : new String[] {config.deployUrl, config.environment, config.serviceAlias,
+                                             config.serviceAliasTemplate, config.description, config.deployerId,
+                                             config.deployerName, config.deployerEmail}) {
+            variables.addAll(Template.compile(template).getVariables());
         }
+        return variables;
+    }
+
+    private static void addCommitVariables(EnvVars env, DeployPayload.Commit commit) {
+        addVariable(env, COMMIT_MESSAGE_VARIABLE, commit.message);
+        addVariable(env, COMMIT_AUTHOR_NAME_VARIABLE, commit.authorName);
+        addVariable(env, COMMIT_AUTHOR_EMAIL_VARIABLE, commit.authorEmail);
+    }
 
-        return payload.build();
+    private static void addVariable(EnvVars env, String name, String value) {
+        if (value != null && !env.containsKey(name)) {
+            env.put(name, value);
+        }
     }
 
     private String stringSub(String templateString, EnvVars env) {
-        StringSubstitutor sub = new StringSubstitutor(env);
-        return sub.replace(templateString);
+        return Template.compile(templateString).render(env::get);
     }
 
     private String getDeployUrl(Run run) {
@@ -287,7 +392,7 @@ public class JobListener extends RunListener<Run<?, ?>> {
         }
     }
 
-    private JsonObject buildDeployerJson(OpsLevelConfig opsLevelConfig, EnvVars env) {
+    private DeployPayload.Deployer buildDeployer(OpsLevelConfig opsLevelConfig, EnvVars env) {
         // TODO: how to access the Jenkins user who triggered this build?
         String deployerId = opsLevelConfig.deployerId;
         String deployerName = opsLevelConfig.deployerName;
@@ -297,89 +402,49 @@ public class JobListener extends RunListener<Run<?, ?>> {
             return null;
         }
 
-        JsonObjectBuilder deployer = Json.createObjectBuilder();
+        DeployPayload.Deployer deployer = new DeployPayload.Deployer();
 
         if (!deployerId.isEmpty()) {
-            deployer.add("id", stringSub(deployerId, env));
+            deployer.id = stringSub(deployerId, env);
         }
 
         if (!deployerName.isEmpty()) {
-            deployer.add("name", stringSub(deployerName, env));
+            deployer.name = stringSub(deployerName, env);
         }
 
         if (!deployerEmail.isEmpty()) {
-            deployer.add("email", stringSub(deployerEmail, env));
+            deployer.email = stringSub(deployerEmail, env);
         }
 
-        return deployer.build();
+        return deployer;
     }
 
-    private JsonObject buildCommitJson(EnvVars env) {
+    // Only the sha and branch when workspace is null
+    private DeployPayload.Commit buildCommit(EnvVars env, Supplier<FilePath> workspace) {
         String commitHash = env.get("GIT_COMMIT");
         if (commitHash == null) {
             // This build doesn't use git
             return null;
         }
-        JsonObjectBuilder commitJson = Json.createObjectBuilder();
-        commitJson.add("sha", commitHash);
-
-        String commitBranch = env.get("GIT_BRANCH");
-        if (commitBranch != null) {
-            commitJson.add("branch", commitBranch);
-        }
-
-        String commitMessage = getGitCommitMessage(env);
-        if (commitMessage != null) {
-            commitJson.add("message", commitMessage);
-        }
-
-        return commitJson.build();
-    }
-
-    private String getGitCommitMessage(EnvVars env) {
-        String output = execCmd(env, "git", "show", "--pretty=%s");
-        if (output == null) {
-            return null;
+        DeployPayload.Commit commit = new DeployPayload.Commit();
+        commit.sha = commitHash;
+        commit.branch = env.get("GIT_BRANCH");
+        if (workspace == null) {
+            return commit;
         }
-        String[] result = output.split("\n", 2);
-        return result[0];
-    }
 
-    private static String execCmd(EnvVars env, String... cmd) {
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.directory(new File(env.get("WORKSPACE")));
-        Process p = null;
-        try {
-            p = pb.start();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-        int exitCode = 0;
-        try {
-            exitCode = p.waitFor();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            return null;
-        }
-        if (exitCode != 0) {
-            String stderr = null;
-            try {
-                stderr = IOUtils.toString(p.getErrorStream(), Charset.defaultCharset());
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
+        CommitInfo commitInfo = CommitMetadata.read(workspace, commitHash);
+        if (commitInfo != null) {
+            commit.message = commitInfo.subject;
+            if (commitInfo.authorName != null) {
+                commit.authorName = commitInfo.authorName;
+                commit.authorEmail = commitInfo.authorEmail;
+            }
+            if (commitInfo.authorTime >= 0) {
+                commit.authoringDate = Instant.ofEpochSecond(commitInfo.authorTime).toString();
             }
-            String strCmd = String.join(" ", cmd);
-            logger.warn("Failed to execute command: {}. Exit code: {}. Stderr:: {}", strCmd, exitCode, stderr);
         }
 
-        try {
-            String stdout = IOUtils.toString(p.getInputStream(), Charset.defaultCharset());
-            return stdout;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return commit;
     }
 }
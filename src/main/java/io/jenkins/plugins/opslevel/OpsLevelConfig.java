@@ -1,6 +1,13 @@
 package io.jenkins.plugins.opslevel;
 
-public class OpsLevelConfig {
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OpsLevelConfig implements Serializable {
+    // Serializable so a running pipeline step can keep its config across a restart
+    private static final long serialVersionUID = 1L;
+
     public boolean run;
     public String webhookUrl;
     public String serviceAlias;
@@ -44,6 +51,34 @@ public class OpsLevelConfig {
                '}';
     }
 
+    public List<String> getWebhookUrls() {
+        // The webhook URL field can hold several URLs, one per OpsLevel account to notify, separated by
+        // commas or whitespace
+        List<String> urls = new ArrayList<>();
+        for (String url : webhookUrl.split("[,\\s]+")) {
+            if (!url.isEmpty() && !urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    public OpsLevelConfig copy() {
+        OpsLevelConfig copy = new OpsLevelConfig();
+        copy.run = this.run;
+        copy.webhookUrl = this.webhookUrl;
+        copy.serviceAlias = this.serviceAlias;
+        copy.serviceAliasTemplate = this.serviceAliasTemplate;
+        copy.environment = this.environment;
+        copy.description = this.description;
+        copy.deployUrl = this.deployUrl;
+        copy.deployerId = this.deployerId;
+        copy.deployerEmail = this.deployerEmail;
+        copy.deployerName = this.deployerName;
+        copy.ignoreList = this.ignoreList;
+        return copy;
+    }
+
     public void populateEmptyValuesFrom(OpsLevelConfig otherConfig) {
         // Bring in values from another config, preferring to keep our own
         // this.run is purposely excluded from this merge
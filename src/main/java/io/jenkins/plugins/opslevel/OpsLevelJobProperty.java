@@ -1,18 +1,50 @@
 package io.jenkins.plugins.opslevel;
 
 import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.model.Job;
 import hudson.model.JobProperty;
 import hudson.model.JobPropertyDescriptor;
+import jenkins.model.Jenkins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
+/**
+ * @deprecated replaced by {@link OpsLevelNotifiedAction}. Kept so jobs saved by older versions still load.
+ */
+@Deprecated
 public class OpsLevelJobProperty extends JobProperty {
 
-    // Attaching this to a job indicates a notification has already been sent.
-    // The global notifier will ignore jobs with this property
+    // Older versions attached this to a job the first time its pipeline ran an opsLevelNotify step,
+    // which muted the global notifier for every later run of that job. It is stripped on startup.
+
+    private static final Logger logger = LoggerFactory.getLogger(OpsLevelJobProperty.class);
 
     public OpsLevelJobProperty() {
     }
 
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void removeFromJobs() {
+        int removed = 0;
+        for (Job<?, ?> job : Jenkins.get().allItems(Job.class)) {
+            if (job.getProperty(OpsLevelJobProperty.class) == null) {
+                continue;
+            }
+            try {
+                job.removeProperty(OpsLevelJobProperty.class);
+                removed++;
+            } catch (IOException e) {
+                logger.warn("Could not remove the OpsLevel job property from {}. {}", job.getFullName(), e.toString());
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed the OpsLevel job property from {} jobs", removed);
+        }
+    }
+
     @Extension
     public static class OpsLevelJobPropertyDescriptorImpl extends JobPropertyDescriptor {
 
@@ -0,0 +1,26 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+public class OpsLevelNotifiedAction extends InvisibleAction {
+    // Attaching this to a run indicates an opsLevelNotify step ran during it.
+    // The global notifier will ignore runs with this action. Unlike a job property it only
+    // applies to the run that contained the step, and adding it does not rewrite the job's config.xml
+
+    public OpsLevelNotifiedAction() {
+    }
+
+    public static synchronized OpsLevelNotifiedAction markNotified(Run<?, ?> run) {
+        OpsLevelNotifiedAction action = run.getAction(OpsLevelNotifiedAction.class);
+        if (action == null) {
+            action = new OpsLevelNotifiedAction();
+            run.addAction(action);
+        }
+        return action;
+    }
+
+    public static boolean isNotified(Run<?, ?> run) {
+        return run.getAction(OpsLevelNotifiedAction.class) != null;
+    }
+}
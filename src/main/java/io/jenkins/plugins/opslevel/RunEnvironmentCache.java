@@ -0,0 +1,81 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.annotation.Nonnull;
+
+public class RunEnvironmentCache {
+    // run.getEnvironment runs every EnvironmentContributor on the instance, so a pipeline calling
+    // opsLevelNotify once per environment would pay for it every time. The environment is resolved once per
+    // run and shared by every notification of that run.
+    //
+    // Keys are weak so a run that is never finalized (Jenkins stopped mid-build) does not stay in memory. A
+    // snapshot is resolved again if actions were added to the run since, which is how a checkout later in a
+    // pipeline contributes GIT_COMMIT.
+
+    private static final Map<Run<?, ?>, Snapshot> snapshots = new WeakHashMap<>();
+
+    private RunEnvironmentCache() {
+    }
+
+    public static EnvVars get(Run<?, ?> run, TaskListener listener) throws IOException, InterruptedException {
+        int actionCount = run.getAllActions().size();
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(run);
+        }
+        if (snapshot == null || snapshot.actionCount != actionCount) {
+            // Resolved outside the lock, two notifications racing on a cold run both resolve it
+            snapshot = new Snapshot(run.getEnvironment(listener), actionCount);
+            synchronized (snapshots) {
+                snapshots.put(run, snapshot);
+            }
+        }
+        // Callers get their own copy to change
+        return new EnvVars(snapshot.env);
+    }
+
+    static void evict(Run<?, ?> run) {
+        synchronized (snapshots) {
+            snapshots.remove(run);
+        }
+    }
+
+    static int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    private static class Snapshot {
+        final EnvVars env;
+        final int actionCount;
+
+        Snapshot(EnvVars env, int actionCount) {
+            this.env = env;
+            this.actionCount = actionCount;
+        }
+    }
+
+    @Extension
+    public static class Evictor extends RunListener<Run<?, ?>> {
+        // After every onCompleted, including ours, so the global notifier still sees the snapshot
+
+        @Override
+        public void onFinalized(@Nonnull Run<?, ?> run) {
+            evict(run);
+        }
+
+        @Override
+        public void onDeleted(@Nonnull Run<?, ?> run) {
+            evict(run);
+        }
+    }
+}
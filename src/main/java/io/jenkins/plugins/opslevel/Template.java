@@ -0,0 +1,130 @@
+package io.jenkins.plugins.opslevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class Template {
+    // A parsed ${VARIABLE} template. Templates are parsed once into a list of literal and variable segments
+    // and then rendered for each build in a single pass. Supports the same syntax we used to hand to
+    // StringSubstitutor:
+    //   ${NAME}            the variable, left as written when it is not set
+    //   ${NAME:-default}   the variable, or the default when it is not set
+    //   $${NAME}           a literal ${NAME}
+    // Variable values are inserted as they are and are not substituted again.
+
+    // Templates come from configuration, so there are few distinct ones. The limit only guards
+    // against something generating templates per build.
+    private static final int MAX_CACHED = 1000;
+    private static final ConcurrentHashMap<String, Template> cache = new ConcurrentHashMap<>();
+
+    private final List<Segment> segments;
+    private final Set<String> variables;
+
+    private Template(List<Segment> segments, Set<String> variables) {
+        this.segments = segments;
+        this.variables = Collections.unmodifiableSet(variables);
+    }
+
+    public static Template compile(String source) {
+        if (source == null) {
+            source = "";
+        }
+        Template template = cache.get(source);
+        if (template == null) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            template = parse(source);
+            cache.put(source, template);
+        }
+        return template;
+    }
+
+    // Names of the variables this template refers to, so callers only work out the values it needs
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    public String render(Function<String, String> lookup) {
+        if (segments.size() == 1 && segments.get(0).name == null) {
+            return segments.get(0).text;
+        }
+        StringBuilder result = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.name == null) {
+                result.append(segment.text);
+                continue;
+            }
+            String value = lookup.apply(segment.name);
+            result.append(value != null ? value : segment.text);
+        }
+        return result.toString();
+    }
+
+    private static Template parse(String source) {
+        List<Segment> segments = new ArrayList<>();
+        Set<String> variables = new LinkedHashSet<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '$' && source.startsWith("$${", i)) {
+                // Escaped, keep one $ and carry on after the brace
+                literal.append("${");
+                i += 3;
+                continue;
+            }
+            int end = c == '$' && source.startsWith("${", i) ? source.indexOf('}', i + 2) : -1;
+            if (end < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                segments.add(Segment.literal(literal.toString()));
+                literal.setLength(0);
+            }
+            String expression = source.substring(i + 2, end);
+            String whole = source.substring(i, end + 1);
+            int delimiter = expression.indexOf(":-");
+            if (delimiter >= 0) {
+                String name = expression.substring(0, delimiter);
+                segments.add(Segment.variable(name, expression.substring(delimiter + 2)));
+                variables.add(name);
+            } else {
+                segments.add(Segment.variable(expression, whole));
+                variables.add(expression);
+            }
+            i = end + 1;
+        }
+        if (literal.length() > 0 || segments.isEmpty()) {
+            segments.add(Segment.literal(literal.toString()));
+        }
+        return new Template(segments, variables);
+    }
+
+    private static class Segment {
+        // Either literal text, or a variable name with the text to use when it is not set
+        final String name;
+        final String text;
+
+        private Segment(String name, String text) {
+            this.name = name;
+            this.text = text;
+        }
+
+        static Segment literal(String text) {
+            return new Segment(null, text);
+        }
+
+        static Segment variable(String name, String fallback) {
+            return new Segment(name, fallback);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+public enum BackpressurePolicy {
+    // What to do with a new delivery when the delivery queue is full. Neither holds up the completing build.
+    // Configurations saved with the old BLOCK policy, which did, now spill.
+    DROP_OLDEST("Drop the oldest queued delivery"),
+    SPILL("Keep it in the outbox until there is room");
+
+    private final String displayName;
+
+    BackpressurePolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static BackpressurePolicy fromString(String value) {
+        if (value != null) {
+            for (BackpressurePolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return SPILL;
+    }
+}
@@ -0,0 +1,106 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+public class CircuitBreaker {
+    // Stops posting to a webhook host after it failed several times in a row. While open, deploys are
+    // held for a retry instead of tying up a worker and a socket on a call that is bound to fail. Once the
+    // open period is over a single trial post is let through, and its outcome closes or reopens the breaker.
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String host;
+    private final CircuitBreakers settings;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private long lastFailureAt = 0;
+    private long trips = 0;
+
+    CircuitBreaker(String host, CircuitBreakers settings) {
+        this.host = host;
+        this.settings = settings;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && remainingOpenMillis() == 0) {
+            // Not yet tried, but the next post will be let through
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getTrips() {
+        return trips;
+    }
+
+    public synchronized long getLastFailureAt() {
+        return lastFailureAt;
+    }
+
+    // Whether a post may be made now. A true answer while half open is the trial post, and must be
+    // followed by recordSuccess, recordFailure or recordNeither.
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (remainingOpenMillis() > 0) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                // The trial post is still in flight
+                return false;
+            case CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    synchronized long remainingOpenMillis() {
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        if (state == State.HALF_OPEN) {
+            // Check back once the trial post has had time to finish
+            return settings.getOpenMillis();
+        }
+        return Math.max(0, openedAt + settings.getOpenMillis() - System.currentTimeMillis());
+    }
+
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    // The post failed for a reason of our own, like an invalid URL, which says nothing about the host.
+    // Nothing is counted, but a trial post lets the next post be the trial instead.
+    synchronized void recordNeither() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        lastFailureAt = System.currentTimeMillis();
+        if (state == State.HALF_OPEN || consecutiveFailures >= settings.getFailureThreshold()) {
+            if (state != State.OPEN) {
+                trips++;
+            }
+            state = State.OPEN;
+            openedAt = lastFailureAt;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import okhttp3.HttpUrl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CircuitBreakers {
+    // One circuit breaker per webhook host, sharing the same settings
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 60000;
+
+    private final ConcurrentHashMap<String, CircuitBreaker> byHost = new ConcurrentHashMap<>();
+
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openMillis = DEFAULT_OPEN_MILLIS;
+
+    public void configure(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    long getOpenMillis() {
+        return openMillis;
+    }
+
+    CircuitBreaker forUrl(String webhookUrl) {
+        HttpUrl url = HttpUrl.parse(webhookUrl);
+        String host = url == null ? webhookUrl : url.host() + ":" + url.port();
+        return byHost.computeIfAbsent(host, h -> new CircuitBreaker(h, this));
+    }
+
+    // Every host we have posted to, by name
+    public List<CircuitBreaker> getAll() {
+        List<CircuitBreaker> breakers = new ArrayList<>(byHost.values());
+        breakers.sort(Comparator.comparing(CircuitBreaker::getHost));
+        return breakers;
+    }
+}
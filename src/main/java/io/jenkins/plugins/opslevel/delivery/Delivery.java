@@ -0,0 +1,104 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+
+public class Delivery {
+    // A single deploy payload on its way to one webhook URL
+
+    private final String webhookUrl;
+    // UTF-8 encoded JSON, encoded once and reused for the outbox and every attempt
+    private final byte[] payload;
+    // Stays the same when the deploy is sent again, empty when unknown
+    private final String dedupId;
+    private final String source;
+    // For the delivery status page, null when not known
+    private final String service;
+    // Null once the owner of the console detached it, or when there never was one (a replay after a restart)
+    private volatile PrintStream buildConsole;
+    private final long createdAt;
+    private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+
+    // Position in the outbox journal, or -1 while it has not been journaled
+    private volatile long outboxId = -1;
+    // Posts made so far, including ones that failed
+    private volatile int attempts = 0;
+
+    public Delivery(String webhookUrl, byte[] payload, String dedupId, String source, PrintStream buildConsole) {
+        this(webhookUrl, payload, dedupId, source, null, buildConsole, System.currentTimeMillis());
+    }
+
+    public Delivery(String webhookUrl, byte[] payload, String dedupId, String source, String service,
+                    PrintStream buildConsole) {
+        this(webhookUrl, payload, dedupId, source, service, buildConsole, System.currentTimeMillis());
+    }
+
+    Delivery(String webhookUrl, byte[] payload, String dedupId, String source, String service,
+             PrintStream buildConsole, long createdAt) {
+        this.webhookUrl = webhookUrl;
+        this.payload = payload;
+        this.dedupId = dedupId == null ? "" : dedupId;
+        this.source = source;
+        this.service = service;
+        this.buildConsole = buildConsole;
+        this.createdAt = createdAt;
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public String getDedupId() {
+        return dedupId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getOutboxId() {
+        return outboxId;
+    }
+
+    void setOutboxId(long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    void recordAttempt() {
+        attempts++;
+    }
+
+    // Completes with true once OpsLevel accepted the payload, false if it could not be delivered
+    public CompletableFuture<Boolean> getCompletion() {
+        return completion;
+    }
+
+    // Called before the build console is closed. Anything printed after this only shows up in the logs and on
+    // the delivery status page.
+    public void detachConsole() {
+        buildConsole = null;
+    }
+
+    public void println(String message) {
+        PrintStream console = buildConsole;
+        if (console != null) {
+            console.println(message);
+        }
+    }
+}
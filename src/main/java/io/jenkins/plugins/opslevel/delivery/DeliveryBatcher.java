@@ -0,0 +1,73 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+class DeliveryBatcher {
+    // Coalesces deliveries for the same webhook URL into one post. A batch is flushed as soon as it is
+    // full, or once its first delivery has waited for the linger time.
+
+    private final Map<String, List<Delivery>> openBatches = new HashMap<>();
+    private final Consumer<List<Delivery>> flushNow;
+    private final Consumer<List<Delivery>> flushLater;
+    private final ScheduledExecutorService lingerTimer;
+
+    private volatile int maxBatchSize = DeliveryQueue.DEFAULT_MAX_BATCH_SIZE;
+    private volatile long maxLingerMillis = DeliveryQueue.DEFAULT_MAX_LINGER_MILLIS;
+
+    // flushNow is called on the thread that filled the batch, flushLater from the linger timer. flushLater must
+    // only hand the batch over, since the timer is shared with the delivery queue's retries.
+    DeliveryBatcher(Consumer<List<Delivery>> flushNow, Consumer<List<Delivery>> flushLater,
+                    ScheduledExecutorService lingerTimer) {
+        this.flushNow = flushNow;
+        this.flushLater = flushLater;
+        this.lingerTimer = lingerTimer;
+    }
+
+    void configure(int maxBatchSize, long maxLingerMillis) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxLingerMillis = Math.max(0, maxLingerMillis);
+    }
+
+    boolean isEnabled() {
+        return maxBatchSize > 1;
+    }
+
+    void add(Delivery delivery) {
+        String webhookUrl = delivery.getWebhookUrl();
+        List<Delivery> full = null;
+        synchronized (this) {
+            List<Delivery> batch = openBatches.get(webhookUrl);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                openBatches.put(webhookUrl, batch);
+                final List<Delivery> lingering = batch;
+                lingerTimer.schedule(() -> expire(webhookUrl, lingering), maxLingerMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.add(delivery);
+            if (batch.size() >= maxBatchSize) {
+                openBatches.remove(webhookUrl);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            flushNow.accept(full);
+        }
+    }
+
+    private void expire(String webhookUrl, List<Delivery> batch) {
+        synchronized (this) {
+            // Already flushed because it filled up
+            if (openBatches.get(webhookUrl) != batch) {
+                return;
+            }
+            openBatches.remove(webhookUrl);
+        }
+        flushLater.accept(batch);
+    }
+}
@@ -0,0 +1,64 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class DeliveryHistory {
+    // The most recent posts, for the delivery status page. Kept in memory only, in a fixed ring of slots
+    // written without locks: each record claims the next sequence number and overwrites the slot of the
+    // record that many posts older.
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DeliveryHistory(int capacity) {
+        // A power of two, so a sequence number maps to its slot with a mask
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(Math.max(2, size));
+        mask = slots.length() - 1;
+    }
+
+    public void add(DeliveryRecord record) {
+        long number = sequence.getAndIncrement();
+        slots.set((int) (number & mask), new Slot(number, record));
+    }
+
+    // Newest first
+    public List<DeliveryRecord> getRecent() {
+        long end = sequence.get();
+        long start = Math.max(0, end - slots.length());
+        List<DeliveryRecord> recent = new ArrayList<>();
+        for (long number = end - 1; number >= start; number--) {
+            Slot slot = slots.get((int) (number & mask));
+            // Skip a slot that is claimed but not written yet, or was already written again by a newer record
+            if (slot != null && slot.number == number) {
+                recent.add(slot.record);
+            }
+        }
+        return recent;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    // Posts recorded since Jenkins started, including those no longer kept
+    public long getTotal() {
+        return sequence.get();
+    }
+
+    private static class Slot {
+        final long number;
+        final DeliveryRecord record;
+
+        Slot(long number, DeliveryRecord record) {
+            this.number = number;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import jenkins.model.Jenkins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeliveryLedger {
+    // The most recent deploys OpsLevel accepted, by webhook URL and dedup id, so a deploy that is sent again
+    // by a retry, a replay or a resumed step is skipped before any network I/O. Kept in
+    // JENKINS_HOME/opslevel/delivered.log, one key per line, and rewritten once it holds twice the limit.
+    //
+    // Lookups go through a bloom filter first. Almost every deploy is new, and the filter answers those
+    // without touching the exact set. The filter cannot forget, so it is rebuilt when the log is rewritten.
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryLedger.class);
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final File file;
+    private final int capacity;
+    // Oldest first
+    private final LinkedHashSet<UUID> keys = new LinkedHashSet<>();
+    private BitSet bloom;
+    private int bloomBits;
+    private Writer log;
+    private int logLines = 0;
+
+    public DeliveryLedger(File file, int capacity) {
+        this.file = file;
+        this.capacity = Math.max(1, capacity);
+        resetBloom();
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void loadOnStartup() {
+        // Before JOB_LOADED, so the ledger is there when the outbox is replayed
+        DeliveryLedger ledger = new DeliveryLedger(new File(Jenkins.get().getRootDir(), "opslevel/delivered.log"),
+                                                   DEFAULT_CAPACITY);
+        try {
+            ledger.load();
+        } catch (IOException e) {
+            logger.error("Could not read the OpsLevel delivery ledger, deploys may be sent twice. {}", e.toString());
+            return;
+        }
+        DeliveryQueue.get().attachLedger(ledger);
+    }
+
+    @Terminator
+    public static void closeOnShutdown() {
+        DeliveryQueue.get().attachLedger(null);
+    }
+
+    public synchronized void load() throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        remember(UUID.fromString(line.trim()));
+                    } catch (IllegalArgumentException e) {
+                        // A torn last line from a crash
+                    }
+                }
+            }
+        }
+        rewrite();
+    }
+
+    // Whether OpsLevel already accepted this deploy at this webhook URL
+    public synchronized boolean contains(Delivery delivery) {
+        UUID key = key(delivery);
+        return key != null && mightContain(key) && keys.contains(key);
+    }
+
+    public synchronized void record(Delivery delivery) {
+        UUID key = key(delivery);
+        if (key == null || keys.contains(key)) {
+            return;
+        }
+        remember(key);
+        if (log == null) {
+            return;
+        }
+        try {
+            // Not fsynced. Losing the record only means a duplicate that OpsLevel dedups on its side.
+            log.write(key.toString());
+            log.write('\n');
+            log.flush();
+            logLines++;
+            if (logLines >= capacity * 2) {
+                rewrite();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write to the OpsLevel delivery ledger. {}", e.toString());
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public synchronized void close() {
+        closeLog();
+    }
+
+    private static UUID key(Delivery delivery) {
+        if (delivery.getDedupId().isEmpty()) {
+            return null;
+        }
+        String identity = delivery.getWebhookUrl() + "\n" + delivery.getDedupId();
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void remember(UUID key) {
+        keys.remove(key);
+        keys.add(key);
+        if (keys.size() > capacity) {
+            Iterator<UUID> oldest = keys.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        addToBloom(key);
+    }
+
+    private void rewrite() throws IOException {
+        // Also drops the keys that fell out of the set from the filter
+        closeLog();
+        resetBloom();
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            for (UUID key : keys) {
+                writer.write(key.toString());
+                writer.write('\n');
+                addToBloom(key);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = keys.size();
+        log = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+    }
+
+    private void closeLog() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.debug("Could not close the OpsLevel delivery ledger");
+        }
+        log = null;
+    }
+
+    private void resetBloom() {
+        bloomBits = capacity * BITS_PER_KEY;
+        bloom = new BitSet(bloomBits);
+    }
+
+    private void addToBloom(UUID key) {
+        long h1 = key.getMostSignificantBits();
+        long h2 = key.getLeastSignificantBits();
+        for (int i = 0; i < HASHES; i++) {
+            bloom.set(bit(h1, h2, i));
+        }
+    }
+
+    private boolean mightContain(UUID key) {
+        long h1 = key.getMostSignificantBits();
+        long h2 = key.getLeastSignificantBits();
+        for (int i = 0; i < HASHES; i++) {
+            if (!bloom.get(bit(h1, h2, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bit(long h1, long h2, int i) {
+        // Double hashing, the two halves of the key are already independent hashes
+        return (int) Math.floorMod(h1 + i * h2, (long) bloomBits);
+    }
+}
@@ -0,0 +1,398 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import jenkins.model.Jenkins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeliveryOutbox {
+    // Append-only journal of deliveries under JENKINS_HOME/opslevel/outbox. Every payload is written (and
+    // fsynced, batched across concurrent writers) before it is sent. It is acknowledged once OpsLevel accepts
+    // it, or marked as given up once it was refused, ran out of attempts or was dropped from a full queue.
+    // Either way it is finished with and forgotten. Anything still open is sent again the next time Jenkins
+    // starts.
+    //
+    // The journal is split into segments. A segment is deleted once it and every older segment hold no open
+    // entries. A deploy that keeps being retried can hold on to an old segment, so once the journal is mostly
+    // finished entries the survivors are carried forward into a fresh segment and the rest is deleted. Recovery
+    // does the same.
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryOutbox.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long DEFAULT_SEGMENT_SIZE = 4L * 1024 * 1024;
+    // Deploys this old are no longer worth reporting
+    private static final long MAX_REPLAY_AGE = TimeUnit.DAYS.toMillis(7);
+
+    private final File directory;
+    private final long segmentSize;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    // Unacknowledged entries in journal order, with the segment that holds each of them
+    private final Map<Long, Pending> pending = new LinkedHashMap<>();
+    // Bytes of the journal taken up by unacknowledged entries
+    private long pendingBytes = 0;
+    private long nextId = 0;
+    private long lastSegmentName = -1;
+    private boolean closed = false;
+
+    public DeliveryOutbox(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    DeliveryOutbox(File directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void replayOnStartup() {
+        DeliveryOutbox outbox = new DeliveryOutbox(new File(Jenkins.get().getRootDir(), "opslevel/outbox"));
+        final List<Delivery> unacknowledged;
+        try {
+            unacknowledged = outbox.recover();
+        } catch (IOException e) {
+            logger.error("Could not open the OpsLevel outbox, deploys will not survive a restart. {}", e.toString());
+            return;
+        }
+        DeliveryQueue.get().attachOutbox(outbox);
+        if (unacknowledged.isEmpty()) {
+            return;
+        }
+        logger.info("Sending {} deploys to OpsLevel that were not delivered before the last shutdown",
+                    unacknowledged.size());
+        DeliveryQueue.get().replay(unacknowledged);
+    }
+
+    @Terminator
+    public static void closeOnShutdown() {
+        DeliveryQueue.get().attachOutbox(null);
+    }
+
+    public synchronized List<Delivery> recover() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        Map<Long, Delivery> entries = new LinkedHashMap<>();
+        List<File> oldSegments = listSegments();
+        for (File file : oldSegments) {
+            // Never reuse the name of a segment that is about to be deleted
+            lastSegmentName = Math.max(lastSegmentName, segmentFirstId(file));
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readRecord(line, entries);
+                }
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - MAX_REPLAY_AGE;
+        List<Delivery> unacknowledged = new ArrayList<>();
+        for (Delivery delivery : entries.values()) {
+            if (delivery.getCreatedAt() < cutoff) {
+                logger.warn("Discarding deploy from {} that could not be delivered to OpsLevel for over a week",
+                            delivery.getSource());
+                continue;
+            }
+            unacknowledged.add(delivery);
+        }
+
+        // Compact: the survivors go into a brand new segment and everything else is removed
+        Segment segment = openSegment();
+        for (Delivery delivery : unacknowledged) {
+            byte[] record = entryRecord(delivery);
+            write(segment, record);
+            track(delivery, segment, record.length);
+        }
+        segment.channel.force(false);
+        for (File file : oldSegments) {
+            if (!file.delete()) {
+                logger.warn("Could not delete OpsLevel outbox segment {}", file);
+            }
+        }
+        return unacknowledged;
+    }
+
+    public void journal(Delivery delivery) throws IOException {
+        Segment segment;
+        long end;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            delivery.setOutboxId(nextId++);
+            segment = currentSegment();
+            byte[] record = entryRecord(delivery);
+            write(segment, record);
+            track(delivery, segment, record.length);
+            end = segment.size;
+        }
+        // Outside the lock, so concurrent writers share a single fsync
+        segment.sync(end);
+    }
+
+    public void acknowledge(Delivery delivery) {
+        finish(delivery, "A");
+    }
+
+    // OpsLevel will never get this deploy, so it is not sent again after a restart either
+    public void giveUp(Delivery delivery) {
+        finish(delivery, "G");
+    }
+
+    private synchronized void finish(Delivery delivery, String type) {
+        Pending entry = pending.remove(delivery.getOutboxId());
+        if (entry == null || closed) {
+            return;
+        }
+        entry.segment.pending--;
+        pendingBytes -= entry.size;
+        try {
+            // Not fsynced. Losing the record only means sending the deploy again.
+            write(currentSegment(), (type + "\t" + delivery.getOutboxId() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Could not record the outcome of a deploy in the OpsLevel outbox. {}", e.toString());
+        }
+        compact();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private void track(Delivery delivery, Segment segment, int size) {
+        segment.pending++;
+        pending.put(delivery.getOutboxId(), new Pending(delivery, segment, size));
+        pendingBytes += size;
+    }
+
+    private Segment currentSegment() throws IOException {
+        Segment current = segments.peekLast();
+        if (current == null || current.size < segmentSize) {
+            return current == null ? openSegment() : current;
+        }
+        current.channel.force(false);
+        current.close();
+        Segment next = openSegment();
+        compact();
+        if (journalSize() > 2 * pendingBytes + segmentSize) {
+            next = carryForward();
+        }
+        return next;
+    }
+
+    private long journalSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // Rewrites the unacknowledged entries into a fresh segment and deletes every other one. Only done once most
+    // of the journal is acknowledged entries, so each byte is carried forward a bounded number of times.
+    private Segment carryForward() throws IOException {
+        List<Segment> old = new ArrayList<>(segments);
+        segments.clear();
+        Segment segment = openSegment();
+        for (Pending entry : pending.values()) {
+            write(segment, entryRecord(entry.delivery));
+            entry.segment = segment;
+        }
+        segment.pending = pending.size();
+        segment.channel.force(false);
+        // Oldest first, so an entry is always deleted before its acknowledgement
+        for (Segment previous : old) {
+            previous.close();
+            if (!previous.file.delete()) {
+                logger.warn("Could not delete OpsLevel outbox segment {}", previous.file);
+            }
+        }
+        return segment;
+    }
+
+    private Segment openSegment() throws IOException {
+        lastSegmentName = Math.max(nextId, lastSegmentName + 1);
+        File file = new File(directory, SEGMENT_PREFIX + String.format("%019d", lastSegmentName) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.APPEND);
+        Segment segment = new Segment(file, channel);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void compact() {
+        // Only a prefix of segments can go. A newer segment may hold the acknowledgements of older entries.
+        while (segments.size() > 1 && segments.peekFirst().pending == 0) {
+            Segment oldest = segments.removeFirst();
+            oldest.close();
+            if (!oldest.file.delete()) {
+                logger.warn("Could not delete OpsLevel outbox segment {}", oldest.file);
+            }
+        }
+    }
+
+    private List<File> listSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // Zero padded names sort in journal order
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long segmentFirstId(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void readRecord(String line, Map<Long, Delivery> entries) {
+        // A torn write from a crash leaves a partial last line. Entries carry the length and checksum of
+        // their payload, so one that was cut short is skipped rather than replayed as broken JSON.
+        // "E" entries were written by older versions, without a checksum, and some without a dedup id.
+        String[] fields = line.split("\t", 9);
+        try {
+            if (fields[0].equals("P") && fields.length == 9) {
+                byte[] payload = fields[8].getBytes(StandardCharsets.UTF_8);
+                if (payload.length != Integer.parseInt(fields[6]) || checksum(payload) != Long.parseLong(fields[7], 16)) {
+                    logger.warn("Skipping incomplete OpsLevel outbox entry {}", fields[1]);
+                    return;
+                }
+                addEntry(entries, fields[1], fields[2], fields[3], fields[4], fields[5], payload);
+            } else if (fields[0].equals("E") && (fields.length == 6 || fields.length == 7)) {
+                String dedupId = fields.length == 7 ? fields[5] : "";
+                byte[] payload = fields[fields.length - 1].getBytes(StandardCharsets.UTF_8);
+                addEntry(entries, fields[1], fields[2], fields[3], fields[4], dedupId, payload);
+            } else if ((fields[0].equals("A") || fields[0].equals("G")) && fields.length == 2) {
+                entries.remove(Long.parseLong(fields[1]));
+            }
+        } catch (NumberFormatException e) {
+            logger.debug("Skipping unreadable OpsLevel outbox record");
+        }
+    }
+
+    private void addEntry(Map<Long, Delivery> entries, String id, String createdAt, String webhookUrl,
+                          String source, String dedupId, byte[] payload) {
+        long entryId = Long.parseLong(id);
+        Delivery delivery = new Delivery(webhookUrl, payload, dedupId, source, null, null, Long.parseLong(createdAt));
+        delivery.setOutboxId(entryId);
+        entries.put(entryId, delivery);
+        nextId = Math.max(nextId, entryId + 1);
+    }
+
+    private static byte[] entryRecord(Delivery delivery) {
+        // The payload is compact JSON, so it never contains a raw tab or newline
+        byte[] payload = delivery.getPayload();
+        byte[] header = ("P\t" + delivery.getOutboxId() + "\t" + delivery.getCreatedAt() + "\t" +
+                         clean(delivery.getWebhookUrl()) + "\t" + clean(delivery.getSource()) + "\t" +
+                         clean(delivery.getDedupId()) + "\t" + payload.length + "\t" +
+                         Long.toHexString(checksum(payload)) + "\t")
+                        .getBytes(StandardCharsets.UTF_8);
+        byte[] record = Arrays.copyOf(header, header.length + payload.length + 1);
+        System.arraycopy(payload, 0, record, header.length, payload.length);
+        record[record.length - 1] = '\n';
+        return record;
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return crc.getValue();
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static void write(Segment segment, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            segment.channel.write(buffer);
+        }
+        segment.size += record.length;
+    }
+
+    private static class Pending {
+        final Delivery delivery;
+        // Bytes of its entry record
+        final int size;
+        Segment segment;
+
+        Pending(Delivery delivery, Segment segment, int size) {
+            this.delivery = delivery;
+            this.segment = segment;
+            this.size = size;
+        }
+    }
+
+    private static class Segment {
+        final File file;
+        final FileChannel channel;
+        volatile long size;
+        int pending = 0;
+        private long synced = 0;
+
+        Segment(File file, FileChannel channel) throws IOException {
+            this.file = file;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        synchronized void sync(long end) throws IOException {
+            if (synced >= end) {
+                // Someone else's fsync already covered this write
+                return;
+            }
+            long target = size;
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment was rolled or closed, which forces it first
+            }
+            synced = target;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Could not close OpsLevel outbox segment {}", file);
+            }
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.opslevel.metrics.NotifierMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeliveryQueue {
+    // Takes webhook posts off the thread that completes the build. Deliveries wait in a bounded queue
+    // and are drained by a small pool of worker threads. With zero delivery threads new deploys are delivered
+    // inline, and a single worker only takes the retries.
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1;
+    public static final long DEFAULT_MAX_LINGER_MILLIS = 200;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryQueue.class);
+    // Characters of each response kept on the delivery status page
+    private static final int MAX_RECORDED_RESPONSE = 200;
+    // How long the scheduler waits before handing work to a full queue again
+    private static final long HAND_OFF_RETRY_MILLIS = 100;
+    private static final DeliveryQueue INSTANCE = new DeliveryQueue();
+
+    private final WebhookSender sender = new WebhookSender();
+    // Holds retries, rate limited batches and lingering batches until they are due, then hands them to the
+    // workers. It never posts or waits for room in the queue itself, so an OpsLevel outage cannot hold it up.
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "OpsLevel delivery scheduler"));
+    private final DeliveryBatcher batcher = new DeliveryBatcher(this::deliver, batch -> handOff(batch, false), scheduler);
+    private final RetryPolicy retryPolicy = new RetryPolicy();
+    private final CircuitBreakers breakers = new CircuitBreakers();
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    private final NotifierMetrics metrics = NotifierMetrics.get();
+    // Shown on the global configuration page
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    // Shown on the delivery status page
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DeliveryHistory history = new DeliveryHistory(DeliveryHistory.DEFAULT_CAPACITY);
+    // Deliveries that found the queue full. Their payload is already in the outbox, and the scheduler queues them
+    // in order once the workers have made room. Guarded by itself.
+    private final Deque<DeliveryTask> spilled = new ArrayDeque<>();
+    private boolean draining = false;
+
+    private int threads = DEFAULT_THREADS;
+    private int capacity = DEFAULT_CAPACITY;
+    private volatile BackpressurePolicy policy = BackpressurePolicy.SPILL;
+    private ThreadPoolExecutor executor;
+    private volatile DeliveryOutbox outbox;
+    private volatile DeliveryLedger ledger;
+
+    public static DeliveryQueue get() {
+        return INSTANCE;
+    }
+
+    public synchronized void configure(int threads, int capacity, BackpressurePolicy policy) {
+        threads = Math.max(0, threads);
+        capacity = Math.max(1, capacity);
+        this.policy = policy;
+
+        int poolSize = Math.max(1, threads);
+        if (executor != null && capacity != this.capacity) {
+            // Anything already queued is still delivered by the old workers
+            executor.shutdown();
+            executor = null;
+        } else if (executor != null && poolSize != executor.getMaximumPoolSize()) {
+            if (poolSize > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(poolSize);
+                executor.setCorePoolSize(poolSize);
+            } else {
+                executor.setCorePoolSize(poolSize);
+                executor.setMaximumPoolSize(poolSize);
+            }
+        }
+        this.threads = threads;
+        this.capacity = capacity;
+    }
+
+    public void configureBatching(int maxBatchSize, long maxLingerMillis) {
+        batcher.configure(maxBatchSize, maxLingerMillis);
+    }
+
+    public void configureRetries(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        retryPolicy.configure(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+
+    public void configureCircuitBreakers(int failureThreshold, long openMillis) {
+        breakers.configure(failureThreshold, openMillis);
+    }
+
+    public void configureCompression(boolean compress, int compressThresholdBytes) {
+        sender.configureCompression(compress, compressThresholdBytes);
+    }
+
+    public void configureResponseLimit(int maxResponseBytes) {
+        sender.configureResponseLimit(maxResponseBytes);
+    }
+
+    public void configureRateLimit(int postsPerMinute, int burst) {
+        rateLimiter.configure(postsPerMinute, burst);
+    }
+
+    public boolean isRateLimited() {
+        return rateLimiter.isEnabled();
+    }
+
+    // How long a deploy posted now would be held back by the rate limit
+    public long getRateLimitWaitMillis() {
+        return rateLimiter.getWaitMillis();
+    }
+
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return breakers.getAll();
+    }
+
+    // Retries scheduled since startup
+    public long getRetryCount() {
+        return metrics.getCount(NotifierMetrics.RETRIED);
+    }
+
+    // Deploys that were not delivered, because OpsLevel refused them or we ran out of attempts
+    public long getFailureCount() {
+        return metrics.getCount(NotifierMetrics.NOT_DELIVERED);
+    }
+
+    // Deploys in the outbox that OpsLevel has not accepted yet
+    public int getOutboxPending() {
+        DeliveryOutbox journal = outbox;
+        return journal == null ? 0 : journal.getPendingCount();
+    }
+
+    public int getPendingRetries() {
+        return pendingRetries.get();
+    }
+
+    // Posts waiting for OpsLevel to answer
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public DeliveryHistory getHistory() {
+        return history;
+    }
+
+    public void attachOutbox(DeliveryOutbox outbox) {
+        DeliveryOutbox previous = this.outbox;
+        this.outbox = outbox;
+        if (previous != null && previous != outbox) {
+            previous.close();
+        }
+    }
+
+    public void attachLedger(DeliveryLedger ledger) {
+        DeliveryLedger previous = this.ledger;
+        this.ledger = ledger;
+        if (previous != null && previous != ledger) {
+            previous.close();
+        }
+    }
+
+    public void submit(Delivery delivery) {
+        if (skipDelivered(Collections.singletonList(delivery)).isEmpty()) {
+            return;
+        }
+
+        DeliveryOutbox journal = outbox;
+        if (journal != null && delivery.getOutboxId() < 0) {
+            try {
+                journal.journal(delivery);
+            } catch (IOException e) {
+                logger.warn("Could not journal deploy from {} in the OpsLevel outbox. {}",
+                            delivery.getSource(), e.toString());
+            }
+        }
+
+        if (isInline()) {
+            // Nothing to batch with when delivering inline
+            deliver(Collections.singletonList(delivery));
+            return;
+        }
+        workers().execute(new DeliveryTask(delivery));
+    }
+
+    // Deploys from the outbox that were not delivered before the last shutdown. They are handed to the workers
+    // from the scheduler, so a full queue never holds up Jenkins' startup or its shared timer.
+    public void replay(List<Delivery> deliveries) {
+        scheduler.execute(() -> {
+            for (Delivery delivery : deliveries) {
+                handOff(Collections.singletonList(delivery), false);
+            }
+        });
+    }
+
+    // Called from the scheduler. Without delivery threads this still goes to a worker, since there is no
+    // build thread left to post from.
+    private void handOff(List<Delivery> batch, boolean permitted) {
+        workers().execute(new DeliveryTask(batch, permitted, true));
+    }
+
+    // Includes the deliveries waiting in the outbox for room in the queue
+    public int getQueueDepth() {
+        ThreadPoolExecutor workers;
+        synchronized (this) {
+            workers = executor;
+        }
+        int waiting;
+        synchronized (spilled) {
+            waiting = spilled.size();
+        }
+        return waiting + (workers == null ? 0 : workers.getQueue().size());
+    }
+
+    private synchronized boolean isInline() {
+        return threads == 0;
+    }
+
+    private synchronized ThreadPoolExecutor workers() {
+        if (executor == null) {
+            int poolSize = Math.max(1, threads);
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(capacity);
+            executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, queue,
+                    new NamingThreadFactory(new DaemonThreadFactory(), "OpsLevel delivery"),
+                    new Backpressure());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    void deliver(List<Delivery> batch) {
+        deliver(batch, false);
+    }
+
+    // permitted is true when the batch already holds a rate limiter token
+    private void deliver(List<Delivery> batch, boolean permitted) {
+        // A retry or replay of a deploy that got through some other way
+        batch = skipDelivered(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!permitted) {
+            long waitMillis = rateLimiter.reserve(batch.get(0).getWebhookUrl());
+            if (waitMillis > 0) {
+                // Hold the batch on the scheduler until its token is due, rather than posting into a 429
+                logger.debug("Rate limiting {} OpsLevel deploys for {} ms", batch.size(), waitMillis);
+                scheduler.schedule(() -> handOff(batch, true), waitMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+
+        for (Delivery delivery : batch) {
+            delivery.recordAttempt();
+        }
+        CircuitBreaker breaker = breakers.forUrl(batch.get(0).getWebhookUrl());
+        if (!breaker.allowRequest()) {
+            // OpsLevel is known to be down, wait for the breaker to let a trial post through. This still
+            // counts as an attempt so a long outage does not hold deploys, and the steps waiting on them, forever.
+            metrics.add(NotifierMetrics.FAILED_CIRCUIT_OPEN, batch.size());
+            record(batch, breaker.getHost(), System.nanoTime(), -1, "Circuit open", null);
+            retryOrGiveUp(batch, breaker.remainingOpenMillis(),
+                          "OpsLevel at " + breaker.getHost() + " is not responding");
+            return;
+        }
+
+        SendResult result;
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        try {
+            result = sender.send(batch);
+        } catch (Exception e) {
+            metrics.recordSince(NotifierMetrics.HTTP_TIME, start);
+            metrics.add(failureCounter(e), batch.size());
+            record(batch, breaker.getHost(), start, -1, outcome(retryPolicy.classify(e)), e.toString());
+            String message = e.toString() + ". Could not publish deploy to OpsLevel.";
+            logger.error(message);
+            for (Delivery delivery : batch) {
+                delivery.println("Error :" + message);
+            }
+            if (retryPolicy.classify(e) == RetryPolicy.Verdict.RETRY) {
+                breaker.recordFailure();
+                retryOrGiveUp(batch, -1, e.toString());
+            } else {
+                // An invalid URL or a bad request says nothing about whether OpsLevel is up
+                breaker.recordNeither();
+                giveUp(batch);
+            }
+            return;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        metrics.recordSince(NotifierMetrics.HTTP_TIME, start);
+        RetryPolicy.Verdict verdict = retryPolicy.classify(result);
+        record(batch, breaker.getHost(), start, result.getStatus(), outcome(verdict), result.getBody());
+
+        switch (verdict) {
+            case DELIVERED:
+                metrics.add(NotifierMetrics.SENT, batch.size());
+                breaker.recordSuccess();
+                DeliveryOutbox journal = outbox;
+                DeliveryLedger delivered = ledger;
+                for (Delivery delivery : batch) {
+                    if (journal != null) {
+                        journal.acknowledge(delivery);
+                    }
+                    if (delivered != null) {
+                        delivered.record(delivery);
+                    }
+                    delivery.getCompletion().complete(true);
+                }
+                break;
+            case RETRY:
+                metrics.add(failureCounter(result), batch.size());
+                if (retryPolicy.isHostFailure(result)) {
+                    breaker.recordFailure();
+                } else {
+                    breaker.recordSuccess();
+                }
+                retryOrGiveUp(batch, result.getRetryAfterMillis(), "OpsLevel returned " + result.describe());
+                break;
+            case GIVE_UP:
+            default:
+                metrics.add(failureCounter(result), batch.size());
+                breaker.recordSuccess();
+                // The same request would be refused again, so there is no point replaying it after a restart
+                giveUp(batch);
+                break;
+        }
+    }
+
+    private void record(List<Delivery> batch, String host, long startNanos, int status, String outcome,
+                        String response) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long now = System.currentTimeMillis();
+        // A batch answered with a result per deploy gets each deploy its own
+        List<String> responses = response == null ? null : WebhookSender.splitResults(response, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            history.add(new DeliveryRecord(now, host, delivery.getSource(), delivery.getService(),
+                                           delivery.getAttempts(), latencyMillis, status, outcome,
+                                           responses == null ? null : truncate(responses.get(i))));
+        }
+    }
+
+    private static String outcome(RetryPolicy.Verdict verdict) {
+        switch (verdict) {
+            case DELIVERED:
+                return "Delivered";
+            case RETRY:
+                return "Failed, retryable";
+            case GIVE_UP:
+            default:
+                return "Refused";
+        }
+    }
+
+    private static String truncate(String response) {
+        return response.length() <= MAX_RECORDED_RESPONSE ? response
+                                                           : response.substring(0, MAX_RECORDED_RESPONSE) + "...";
+    }
+
+    private static String failureCounter(Exception e) {
+        if (e instanceof InterruptedIOException) {
+            // Includes SocketTimeoutException
+            return NotifierMetrics.FAILED_TIMEOUT;
+        }
+        if (e instanceof SocketException || e instanceof UnknownHostException) {
+            return NotifierMetrics.FAILED_CONNECT;
+        }
+        return NotifierMetrics.FAILED_OTHER;
+    }
+
+    private static String failureCounter(SendResult result) {
+        int status = result.getStatus();
+        if (status == 408) {
+            return NotifierMetrics.FAILED_TIMEOUT;
+        } else if (status == 429) {
+            return NotifierMetrics.FAILED_RATE_LIMITED;
+        } else if (status >= 500) {
+            return NotifierMetrics.FAILED_SERVER_ERROR;
+        } else if (status >= 400) {
+            return NotifierMetrics.FAILED_CLIENT_ERROR;
+        }
+        return NotifierMetrics.FAILED_OTHER;
+    }
+
+    // The deliveries OpsLevel has not accepted yet. The others are completed as delivered.
+    private List<Delivery> skipDelivered(List<Delivery> batch) {
+        DeliveryLedger delivered = ledger;
+        if (delivered == null) {
+            return batch;
+        }
+        List<Delivery> remaining = null;
+        for (int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            if (!delivered.contains(delivery)) {
+                if (remaining != null) {
+                    remaining.add(delivery);
+                }
+                continue;
+            }
+            if (remaining == null) {
+                remaining = new ArrayList<>(batch.subList(0, i));
+            }
+            delivery.println("OpsLevel notifier: skipping deploy " + delivery.getDedupId() + ", OpsLevel already has it");
+            metrics.increment(NotifierMetrics.SKIPPED_ALREADY_DELIVERED);
+            DeliveryOutbox journal = outbox;
+            if (journal != null) {
+                journal.acknowledge(delivery);
+            }
+            delivery.getCompletion().complete(true);
+        }
+        return remaining != null ? remaining : batch;
+    }
+
+    private void retryOrGiveUp(List<Delivery> batch, long retryAfterMillis, String reason) {
+        int attempts = 0;
+        for (Delivery delivery : batch) {
+            attempts = Math.max(attempts, delivery.getAttempts());
+        }
+        if (!retryPolicy.canRetry(attempts)) {
+            for (Delivery delivery : batch) {
+                delivery.println("OpsLevel notifier: giving up on deploy after " + attempts + " attempts. " + reason);
+            }
+            giveUp(batch);
+            return;
+        }
+        retryLater(batch, retryPolicy.delayMillis(attempts, retryAfterMillis), reason);
+    }
+
+    private void retryLater(List<Delivery> batch, long delayMillis, String reason) {
+        for (Delivery delivery : batch) {
+            delivery.println("OpsLevel notifier: " + reason + ", retrying in " + delayMillis + " ms");
+        }
+        logger.debug("Retrying {} OpsLevel deploys in {} ms. {}", batch.size(), delayMillis, reason);
+        metrics.add(NotifierMetrics.RETRIED, batch.size());
+        pendingRetries.incrementAndGet();
+        // Waiting happens on the scheduler, not on a delivery worker or the build's thread
+        scheduler.schedule(() -> {
+            pendingRetries.decrementAndGet();
+            handOff(batch, false);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void giveUp(List<Delivery> batch) {
+        DeliveryOutbox journal = outbox;
+        for (Delivery delivery : batch) {
+            // Otherwise its payload would stay in memory, and be sent again, until the next restart
+            if (journal != null) {
+                journal.giveUp(delivery);
+            }
+            metrics.increment(NotifierMetrics.NOT_DELIVERED);
+            delivery.getCompletion().complete(false);
+        }
+    }
+
+    private void spill(DeliveryTask task) {
+        synchronized (spilled) {
+            spilled.addLast(task);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        scheduler.schedule(this::drainSpilled, HAND_OFF_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Called from the scheduler. Queues spilled deliveries, oldest first, while there is room for them.
+    private void drainSpilled() {
+        ThreadPoolExecutor workers = workers();
+        while (true) {
+            DeliveryTask task;
+            synchronized (spilled) {
+                if (spilled.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                if (workers.getQueue().remainingCapacity() == 0) {
+                    break;
+                }
+                task = spilled.pollFirst();
+            }
+            // Lost a race for the room, this spills it again
+            workers.execute(new DeliveryTask(task.deliveries(), task.permitted, true));
+        }
+        scheduler.schedule(this::drainSpilled, HAND_OFF_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private class DeliveryTask implements Runnable {
+        // Either a single delivery that may still be batched, or a batch that is ready to go
+        private final Delivery delivery;
+        private final List<Delivery> batch;
+        private final boolean permitted;
+        // Handed over by the scheduler, which must not run it or drop other deliveries to make room for it
+        private final boolean scheduled;
+
+        DeliveryTask(Delivery delivery) {
+            this.delivery = delivery;
+            this.batch = null;
+            this.permitted = false;
+            this.scheduled = false;
+        }
+
+        DeliveryTask(List<Delivery> batch, boolean permitted, boolean scheduled) {
+            this.delivery = null;
+            this.batch = batch;
+            this.permitted = permitted;
+            this.scheduled = scheduled;
+        }
+
+        List<Delivery> deliveries() {
+            return batch != null ? batch : Collections.singletonList(delivery);
+        }
+
+        @Override
+        public void run() {
+            if (batch != null) {
+                deliver(batch, permitted);
+            } else if (batcher.isEnabled()) {
+                batcher.add(delivery);
+            } else {
+                deliver(Collections.singletonList(delivery));
+            }
+        }
+    }
+
+    private class Backpressure implements RejectedExecutionHandler {
+
+        // Never runs the delivery or waits for room, since it is called on the thread completing the build
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor workers) {
+            DeliveryTask task = (DeliveryTask) runnable;
+            if (workers.isShutdown()) {
+                // The pool was replaced by a reconfiguration while we were submitting, queue it on the new one
+                scheduler.execute(() -> handOff(task.deliveries(), task.permitted));
+                return;
+            }
+            if (policy == BackpressurePolicy.DROP_OLDEST && !task.scheduled) {
+                Runnable oldest = workers.getQueue().poll();
+                if (oldest instanceof DeliveryTask) {
+                    DeliveryOutbox journal = outbox;
+                    for (Delivery dropped : ((DeliveryTask) oldest).deliveries()) {
+                        logger.warn("OpsLevel delivery queue is full, dropping deploy from {}", dropped.getSource());
+                        if (journal != null) {
+                            journal.giveUp(dropped);
+                        }
+                        metrics.increment(NotifierMetrics.DROPPED);
+                        dropped.getCompletion().complete(false);
+                    }
+                }
+                workers.execute(task);
+                return;
+            }
+            spill(task);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+public class DeliveryRecord {
+    // One post of one deploy, as shown on the delivery status page
+
+    private final long timestamp;
+    private final String host;
+    private final String source;
+    private final String service;
+    private final int attempt;
+    private final long latencyMillis;
+    // -1 when no response came back
+    private final int status;
+    private final String outcome;
+    private final String response;
+
+    DeliveryRecord(long timestamp, String host, String source, String service, int attempt, long latencyMillis,
+                   int status, String outcome, String response) {
+        this.timestamp = timestamp;
+        this.host = host;
+        this.source = source;
+        this.service = service;
+        this.attempt = attempt;
+        this.latencyMillis = latencyMillis;
+        this.status = status;
+        this.outcome = outcome;
+        this.response = response;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Only the host, the rest of a webhook URL is a secret
+    public String getHost() {
+        return host;
+    }
+
+    // The run, as job#number
+    public String getSource() {
+        return source;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    // Truncated response body, or the error when the post failed
+    public String getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,92 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+import javax.annotation.Nonnull;
+
+@Extension
+public class DeliveryStatusLink extends ManagementLink {
+    // Manage Jenkins page with the state of the delivery queue and the most recent posts to OpsLevel, the
+    // first place to look when a deploy is missing. The same as JSON at JENKINS_URL/opslevel-deliveries/json.
+
+    @Override
+    public String getIconFileName() {
+        return "network.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OpsLevel Deliveries";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Recent deploys posted to OpsLevel and what OpsLevel answered.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "opslevel-deliveries";
+    }
+
+    @Nonnull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    @Nonnull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    public DeliveryQueue getQueue() {
+        return DeliveryQueue.get();
+    }
+
+    public String formatTimestamp(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).toString();
+    }
+
+    public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(toJson(DeliveryQueue.get()).toString());
+    }
+
+    static JSONObject toJson(DeliveryQueue queue) {
+        JSONArray deliveries = new JSONArray();
+        for (DeliveryRecord record : queue.getHistory().getRecent()) {
+            JSONObject delivery = new JSONObject();
+            delivery.put("timestamp", Instant.ofEpochMilli(record.getTimestamp()).toString());
+            delivery.put("host", record.getHost());
+            delivery.put("run", record.getSource());
+            delivery.put("service", record.getService());
+            delivery.put("attempt", record.getAttempt());
+            delivery.put("latency_ms", record.getLatencyMillis());
+            delivery.put("status", record.getStatus());
+            delivery.put("outcome", record.getOutcome());
+            delivery.put("response", record.getResponse());
+            deliveries.add(delivery);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("queue_depth", queue.getQueueDepth());
+        json.put("in_flight", queue.getInFlight());
+        json.put("pending_retries", queue.getPendingRetries());
+        json.put("outbox_pending", queue.getOutboxPending());
+        json.put("posts_since_startup", queue.getHistory().getTotal());
+        json.put("deliveries", deliveries);
+        return json;
+    }
+}
@@ -0,0 +1,32 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+public class DeployPayload {
+    // The deploy event we post to OpsLevel. Written out by DeployPayloadWriter, fields left null are
+    // sent as null and the deployer and commit are left out entirely when they are null.
+
+    public String dedupId;
+    public String deployNumber;
+    public String deployUrl;
+    public String deployedAt;
+    public String description;
+    public String environment;
+    public String service;
+    public Deployer deployer;
+    public Commit commit;
+
+    public static class Deployer {
+        // Only the values that are set are sent
+        public String id;
+        public String name;
+        public String email;
+    }
+
+    public static class Commit {
+        public String sha;
+        public String branch;
+        public String message;
+        public String authorName;
+        public String authorEmail;
+        public String authoringDate;
+    }
+}
@@ -0,0 +1,133 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+public class DeployPayloadWriter {
+    // Writes a DeployPayload as compact JSON, straight into an okio sink as UTF-8. There is no tree of
+    // JSON values and no intermediate String: runs of characters that need no escaping are encoded
+    // directly from the source strings, into okio's pooled segments.
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private DeployPayloadWriter() {
+    }
+
+    // The encoded payload, ready to be journaled and posted as many times as needed
+    public static byte[] toBytes(DeployPayload payload) {
+        Buffer buffer = new Buffer();
+        try {
+            write(payload, buffer);
+        } catch (IOException e) {
+            // A Buffer is in memory and never fails
+            throw new IllegalStateException(e);
+        }
+        return buffer.readByteArray();
+    }
+
+    public static void write(DeployPayload payload, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        writeField(sink, "dedup_id", payload.dedupId, true);
+        writeField(sink, "deploy_number", payload.deployNumber, false);
+        writeField(sink, "deploy_url", payload.deployUrl, false);
+        writeField(sink, "deployed_at", payload.deployedAt, false);
+        writeField(sink, "description", payload.description, false);
+        writeField(sink, "environment", payload.environment, false);
+        writeField(sink, "service", payload.service, false);
+
+        DeployPayload.Deployer deployer = payload.deployer;
+        if (deployer != null) {
+            sink.writeUtf8(",\"deployer\":{");
+            boolean first = true;
+            first = writeOptionalField(sink, "id", deployer.id, first);
+            first = writeOptionalField(sink, "name", deployer.name, first);
+            writeOptionalField(sink, "email", deployer.email, first);
+            sink.writeByte('}');
+        }
+
+        DeployPayload.Commit commit = payload.commit;
+        if (commit != null) {
+            sink.writeUtf8(",\"commit\":{");
+            boolean first = true;
+            first = writeOptionalField(sink, "sha", commit.sha, first);
+            first = writeOptionalField(sink, "branch", commit.branch, first);
+            first = writeOptionalField(sink, "message", commit.message, first);
+            first = writeOptionalField(sink, "author_name", commit.authorName, first);
+            first = writeOptionalField(sink, "author_email", commit.authorEmail, first);
+            writeOptionalField(sink, "authoring_date", commit.authoringDate, first);
+            sink.writeByte('}');
+        }
+        sink.writeByte('}');
+    }
+
+    private static void writeField(BufferedSink sink, String name, String value, boolean first) throws IOException {
+        if (!first) {
+            sink.writeByte(',');
+        }
+        // Field names are our own constants and never need escaping
+        sink.writeByte('"').writeUtf8(name).writeUtf8("\":");
+        writeString(sink, value);
+    }
+
+    // Returns whether the next field is still the first one
+    private static boolean writeOptionalField(BufferedSink sink, String name, String value, boolean first)
+    throws IOException {
+        if (value == null) {
+            return first;
+        }
+        writeField(sink, name, value, first);
+        return false;
+    }
+
+    static void writeString(BufferedSink sink, String value) throws IOException {
+        if (value == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > start) {
+                sink.writeUtf8(value, start, i);
+            }
+            switch (c) {
+                case '"':
+                    sink.writeUtf8("\\\"");
+                    break;
+                case '\\':
+                    sink.writeUtf8("\\\\");
+                    break;
+                case '\n':
+                    sink.writeUtf8("\\n");
+                    break;
+                case '\r':
+                    sink.writeUtf8("\\r");
+                    break;
+                case '\t':
+                    sink.writeUtf8("\\t");
+                    break;
+                case '\b':
+                    sink.writeUtf8("\\b");
+                    break;
+                case '\f':
+                    sink.writeUtf8("\\f");
+                    break;
+                default:
+                    sink.writeUtf8("\\u00").writeByte(HEX[c >> 4]).writeByte(HEX[c & 0xf]);
+                    break;
+            }
+            start = i + 1;
+        }
+        if (start < length) {
+            sink.writeUtf8(value, start, length);
+        }
+        sink.writeByte('"');
+    }
+}
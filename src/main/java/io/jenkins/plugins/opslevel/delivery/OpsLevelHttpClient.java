@@ -0,0 +1,64 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+public class OpsLevelHttpClient {
+    // One client for the whole plugin. Every post shares its connection pool, so notifications reuse
+    // kept-alive connections (HTTP/2 where the endpoint offers it) instead of paying a new TLS handshake.
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    public static final int DEFAULT_READ_TIMEOUT_SECONDS = 10;
+    public static final int DEFAULT_CALL_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    private static int connectTimeoutSeconds = DEFAULT_CONNECT_TIMEOUT_SECONDS;
+    private static int readTimeoutSeconds = DEFAULT_READ_TIMEOUT_SECONDS;
+    private static int callTimeoutSeconds = DEFAULT_CALL_TIMEOUT_SECONDS;
+    private static int keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+    private static volatile OkHttpClient client = build();
+
+    private OpsLevelHttpClient() {
+    }
+
+    public static OkHttpClient get() {
+        return client;
+    }
+
+    public static synchronized void configure(int connectTimeoutSeconds, int readTimeoutSeconds,
+                                              int callTimeoutSeconds, int keepAliveSeconds) {
+        if (connectTimeoutSeconds == OpsLevelHttpClient.connectTimeoutSeconds &&
+            readTimeoutSeconds == OpsLevelHttpClient.readTimeoutSeconds &&
+            callTimeoutSeconds == OpsLevelHttpClient.callTimeoutSeconds &&
+            keepAliveSeconds == OpsLevelHttpClient.keepAliveSeconds) {
+            return;
+        }
+        OpsLevelHttpClient.connectTimeoutSeconds = connectTimeoutSeconds;
+        OpsLevelHttpClient.readTimeoutSeconds = readTimeoutSeconds;
+        OpsLevelHttpClient.callTimeoutSeconds = callTimeoutSeconds;
+        OpsLevelHttpClient.keepAliveSeconds = keepAliveSeconds;
+
+        OkHttpClient previous = client;
+        client = build();
+        // Calls in flight keep their connections, idle ones are closed now
+        previous.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient build() {
+        return new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, keepAliveSeconds, TimeUnit.SECONDS))
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+            .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+            .writeTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+            .callTimeout(callTimeoutSeconds, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(true)
+            .build();
+    }
+}
@@ -0,0 +1,93 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+    // A token bucket per webhook URL. Each post takes a token, tokens come back at a steady rate and up
+    // to a burst's worth can be saved up. A post that finds the bucket empty still takes its token, and is
+    // told how long to wait for it, so waiting posts go out in order and nothing is dropped.
+
+    public static final int DEFAULT_POSTS_PER_MINUTE = 0;
+    public static final int DEFAULT_BURST = 10;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // 0 means posts are not limited
+    private volatile int postsPerMinute = DEFAULT_POSTS_PER_MINUTE;
+    private volatile int burst = DEFAULT_BURST;
+
+    public void configure(int postsPerMinute, int burst) {
+        postsPerMinute = Math.max(0, postsPerMinute);
+        burst = Math.max(1, burst);
+        if (postsPerMinute != this.postsPerMinute || burst != this.burst) {
+            // Start from full buckets with the new settings
+            buckets.clear();
+        }
+        this.postsPerMinute = postsPerMinute;
+        this.burst = burst;
+    }
+
+    public boolean isEnabled() {
+        return postsPerMinute > 0;
+    }
+
+    // Takes a token for one post, returning how many milliseconds to wait before making it
+    long reserve(String webhookUrl) {
+        int rate = postsPerMinute;
+        if (rate <= 0) {
+            return 0;
+        }
+        int capacity = burst;
+        Bucket bucket = buckets.computeIfAbsent(webhookUrl, url -> new Bucket(rate, capacity));
+        return bucket.reserve();
+    }
+
+    // How long a post made now would wait, for the longest queue of any URL
+    public long getWaitMillis() {
+        long wait = 0;
+        for (Bucket bucket : buckets.values()) {
+            wait = Math.max(wait, bucket.waitMillis());
+        }
+        return wait;
+    }
+
+    private static class Bucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        // Negative while posts are waiting for tokens that have not come back yet
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(int postsPerMinute, int capacity) {
+            this.tokensPerNano = postsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            return waitFor(0);
+        }
+
+        synchronized long waitMillis() {
+            refill();
+            return waitFor(1);
+        }
+
+        private long waitFor(double needed) {
+            double missing = needed - tokens;
+            if (missing <= 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis((long) Math.ceil(missing / tokensPerNano)) + 1;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
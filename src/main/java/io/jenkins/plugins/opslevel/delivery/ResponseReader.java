@@ -0,0 +1,78 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+class ResponseReader {
+    // Turns an OpsLevel response into a SendResult without trusting its size. The status is taken first, then
+    // at most maxBytes of the body are read off the stream. The rest is never buffered: closing the response
+    // discards it and hands the connection back to the pool, or drops the connection if there is too much left.
+    // An error page from a proxy in front of OpsLevel can be megabytes of HTML.
+
+    // Only string fields, and they may be nested. That's enough for {"result": "ok"} and {"error": "..."}.
+    private static final Pattern MESSAGE_FIELD =
+            Pattern.compile("\"(error|message|result)\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private ResponseReader() {
+    }
+
+    static SendResult read(Response response, int maxBytes) throws IOException {
+        int status = response.code();
+        long retryAfterMillis = WebhookSender.parseRetryAfter(response.header("Retry-After"));
+        ResponseBody body = response.body();
+        if (body == null || maxBytes <= 0) {
+            return new SendResult(status, retryAfterMillis, null);
+        }
+
+        BufferedSource source = body.source();
+        // One byte past the limit tells us whether there was more
+        source.request((long) maxBytes + 1);
+        Buffer buffered = source.getBuffer();
+        boolean truncated = buffered.size() > maxBytes;
+        Charset charset = charset(body);
+        long keep = Math.min(buffered.size(), maxBytes);
+        if (truncated && charset.equals(StandardCharsets.UTF_8)) {
+            keep = utf8Boundary(buffered, keep);
+        }
+        String text = buffered.readString(keep, charset);
+        String message = message(text);
+        if (truncated) {
+            long length = body.contentLength();
+            text += "... [truncated" + (length > 0 ? ", " + length + " bytes" : "") + "]";
+        }
+        return new SendResult(status, retryAfterMillis, text, message);
+    }
+
+    // The error, message or result OpsLevel put in its answer, whichever comes first, or null
+    static String message(String text) {
+        Matcher matcher = MESSAGE_FIELD.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(2).replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+
+    // Backs the limit up to where a character starts, so a character cut in half by it is left out rather than
+    // decoded as a replacement character. UTF-8 continuation bytes look like 10xxxxxx.
+    static long utf8Boundary(Buffer buffered, long limit) {
+        long boundary = limit;
+        while (boundary > 0 && limit - boundary < 3 && (buffered.getByte(boundary) & 0xc0) == 0x80) {
+            boundary--;
+        }
+        return (buffered.getByte(boundary) & 0xc0) == 0x80 ? limit : boundary;
+    }
+
+    private static Charset charset(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        return contentType == null ? StandardCharsets.UTF_8 : contentType.charset(StandardCharsets.UTF_8);
+    }
+}
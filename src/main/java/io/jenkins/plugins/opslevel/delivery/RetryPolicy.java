@@ -0,0 +1,76 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+    // Decides whether a failed post is worth repeating, and how long to wait first. Waits grow
+    // exponentially up to a cap, and are jittered so deploys that failed together do not retry together.
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60000;
+
+    // A Retry-After header is honoured, but we will not hold a deploy for longer than this
+    private static final long MAX_RETRY_AFTER_MILLIS = 10 * 60 * 1000;
+
+    public enum Verdict {
+        DELIVERED,
+        RETRY,
+        GIVE_UP
+    }
+
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private volatile long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+    public void configure(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Verdict classify(SendResult result) {
+        int status = result.getStatus();
+        if (result.isSuccessful()) {
+            return Verdict.DELIVERED;
+        }
+        // Timeouts, rate limiting and server errors may pass. Any other 4xx means the request itself is wrong.
+        if (status == 408 || status == 429 || status >= 500) {
+            return Verdict.RETRY;
+        }
+        return Verdict.GIVE_UP;
+    }
+
+    public Verdict classify(Exception e) {
+        // Connect and read timeouts, refused connections and DNS failures are all IOExceptions.
+        // Anything else, like an invalid webhook URL, fails the same way every time.
+        return e instanceof IOException ? Verdict.RETRY : Verdict.GIVE_UP;
+    }
+
+    // Whether the host should be considered down, as opposed to refusing this particular request
+    public boolean isHostFailure(SendResult result) {
+        return result.getStatus() >= 500;
+    }
+
+    public boolean canRetry(int attempts) {
+        return attempts < maxAttempts;
+    }
+
+    // attempts is the number of posts already made
+    public long delayMillis(int attempts, long retryAfterMillis) {
+        long backoff = initialBackoffMillis << Math.min(Math.max(0, attempts - 1), 30);
+        backoff = Math.min(backoff, maxBackoffMillis);
+        // Equal jitter: at least half the backoff, so retries still spread out as it grows
+        long half = backoff / 2;
+        long delay = half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+        if (retryAfterMillis > delay) {
+            delay = Math.min(retryAfterMillis, MAX_RETRY_AFTER_MILLIS);
+        }
+        return delay;
+    }
+}
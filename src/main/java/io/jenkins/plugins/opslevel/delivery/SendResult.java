@@ -0,0 +1,49 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+public class SendResult {
+    // What OpsLevel answered to a post
+
+    private final int status;
+    // How long OpsLevel asked us to wait before trying again, or -1 when it did not say
+    private final long retryAfterMillis;
+    private final String body;
+    private final String message;
+
+    public SendResult(int status, long retryAfterMillis, String body) {
+        this(status, retryAfterMillis, body, null);
+    }
+
+    public SendResult(int status, long retryAfterMillis, String body, String message) {
+        this.status = status;
+        this.retryAfterMillis = retryAfterMillis;
+        this.body = body;
+        this.message = message;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    // The start of the response body, or null when there was none
+    public String getBody() {
+        return body;
+    }
+
+    // The error, message or result field of the body, or null when it had none
+    public String getMessage() {
+        return message;
+    }
+
+    // For logs and the build console
+    public String describe() {
+        return status + (message != null ? " " + message : "");
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+}
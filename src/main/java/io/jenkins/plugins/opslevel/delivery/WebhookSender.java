@@ -0,0 +1,291 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WebhookSender {
+
+    // Bodies at least this large are gzipped, when compression is on
+    public static final int DEFAULT_COMPRESS_THRESHOLD_BYTES = 1024;
+    // Bytes of each response read, shown in the build console and kept for the status page
+    public static final int DEFAULT_MAX_RESPONSE_BYTES = 4096;
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+    private static final Logger logger = LoggerFactory.getLogger(WebhookSender.class);
+
+    private final String agent;
+    private volatile boolean compress = false;
+    private volatile int compressThresholdBytes = DEFAULT_COMPRESS_THRESHOLD_BYTES;
+    private volatile int maxResponseBytes = DEFAULT_MAX_RESPONSE_BYTES;
+    // Hosts that turned a gzip body down but took the same payload uncompressed
+    private final Set<String> uncompressedHosts = ConcurrentHashMap.newKeySet();
+
+    public WebhookSender() {
+        agent = "jenkins-" + loadPluginVersion();
+    }
+
+    public SendResult send(Delivery delivery) throws IOException {
+        return send(Collections.singletonList(delivery));
+    }
+
+    // Deliveries in a batch share a webhook URL. They are posted together as a JSON array and
+    // succeed or fail together.
+    public SendResult send(List<Delivery> batch) throws IOException {
+        String webhookUrl = batch.get(0).getWebhookUrl();
+        HttpUrl httpUrl = HttpUrl.parse(webhookUrl);
+        if (httpUrl == null) {
+            throw new InputMismatchException("Webhook URL is invalid");
+        }
+        // Append plugin version as query param for visibility
+        HttpUrl url = httpUrl.newBuilder().addQueryParameter("agent", agent).build();
+
+        RequestBody body = new PayloadBody(batch);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sending OpsLevel Integration payload:\n{}", body.toString());
+        }
+
+        SendResult result;
+        String host = url.host() + ":" + url.port();
+        if (compress && body.contentLength() >= compressThresholdBytes && !uncompressedHosts.contains(host)) {
+            result = post(url, gzip(body), true);
+            if (result.getStatus() == 400 || result.getStatus() == 415) {
+                // The endpoint may not understand compressed bodies, try again as plain JSON
+                logger.debug("OpsLevel webhook {} refused a gzip body with {}", url, result.getStatus());
+                result = post(url, body, false);
+                if (result.isSuccessful()) {
+                    logger.info("OpsLevel webhook host {} does not accept gzip bodies, sending them uncompressed", host);
+                    uncompressedHosts.add(host);
+                }
+            }
+        } else {
+            result = post(url, body, false);
+        }
+
+        if (result.isSuccessful()) {
+            logger.debug("OpsLevel webhook host {} accepted {} deploys: {}", host, batch.size(), result.describe());
+        } else {
+            logger.warn("OpsLevel webhook host {} did not accept {} deploys: {}", host, batch.size(), result.describe());
+        }
+        String responseText = result.getBody();
+        if (responseText != null) {
+            List<String> results = splitResults(responseText, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).println("OpsLevel Response: " + results.get(i));
+            }
+        }
+        return result;
+    }
+
+    public void configureCompression(boolean compress, int compressThresholdBytes) {
+        if (compress != this.compress) {
+            // Give every host another chance
+            uncompressedHosts.clear();
+        }
+        this.compress = compress;
+        this.compressThresholdBytes = Math.max(0, compressThresholdBytes);
+    }
+
+    public void configureResponseLimit(int maxResponseBytes) {
+        this.maxResponseBytes = Math.max(0, maxResponseBytes);
+    }
+
+    private SendResult post(HttpUrl url, RequestBody body, boolean gzipped) throws IOException {
+        Request.Builder request = new Request.Builder()
+        .url(url)
+        .post(body);
+        if (gzipped) {
+            request.header("Content-Encoding", "gzip");
+        }
+
+        // Closing the response hands its connection back to the shared pool
+        try (Response response = OpsLevelHttpClient.get().newCall(request.build()).execute()) {
+            logger.debug("OpsLevel webhook {} answered {}", url, response.code());
+            return ResponseReader.read(response, maxResponseBytes);
+        } catch (Exception e) {
+            logger.warn("Invocation of OpsLevel webhook {} failed: {}", url, e.toString());
+            throw e;
+        }
+    }
+
+    private static RequestBody gzip(RequestBody body) throws IOException {
+        // Compressed up front, so the request still has a known length and can be sent again
+        Buffer compressed = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(sink);
+        }
+        return RequestBody.create(body.contentType(), compressed.readByteString());
+    }
+
+    private static class PayloadBody extends RequestBody {
+        // Writes the already encoded payloads straight into the connection. A batch is sent as a JSON array
+        // without joining the payloads into one string first.
+        private final List<Delivery> batch;
+
+        PayloadBody(List<Delivery> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON_MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            if (batch.size() == 1) {
+                return batch.get(0).getPayload().length;
+            }
+            // Brackets and commas
+            long length = batch.size() + 1;
+            for (Delivery delivery : batch) {
+                length += delivery.getPayload().length;
+            }
+            return length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            if (batch.size() == 1) {
+                sink.write(batch.get(0).getPayload());
+                return;
+            }
+            sink.writeByte('[');
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    sink.writeByte(',');
+                }
+                sink.write(batch.get(i).getPayload());
+            }
+            sink.writeByte(']');
+        }
+
+        @Override
+        public String toString() {
+            Buffer buffer = new Buffer();
+            try {
+                writeTo(buffer);
+            } catch (IOException e) {
+                return e.toString();
+            }
+            return buffer.readUtf8();
+        }
+    }
+
+    static List<String> splitResults(String responseText, int count) {
+        // A batch answered with one result per event gets each result recorded for its own build on the delivery
+        // status page, and shown in its console if the build is still waiting. Anything else goes to every build.
+        List<String> results = new ArrayList<>(count);
+        if (count > 1) {
+            List<String> elements = splitJsonArray(responseText);
+            if (elements != null && elements.size() == count) {
+                return elements;
+            }
+            logger.debug("OpsLevel response to a batch is not a JSON array with a result per deploy");
+        }
+        for (int i = 0; i < count; i++) {
+            results.add(responseText);
+        }
+        return results;
+    }
+
+    // The text of each top level element of a JSON array, or null if the text is not an array.
+    // Only finds the element boundaries, the elements themselves are passed on as they are.
+    private static List<String> splitJsonArray(String text) {
+        String json = text.trim();
+        if (json.length() < 2 || json.charAt(0) != '[' || json.charAt(json.length() - 1) != ']') {
+            return null;
+        }
+        List<String> elements = new ArrayList<>();
+        int depth = 0;
+        boolean inString = false;
+        int start = 1;
+        for (int i = 1; i < json.length() - 1; i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth < 0) {
+                    return null;
+                }
+            } else if (c == ',' && depth == 0) {
+                elements.add(json.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        if (inString || depth != 0) {
+            return null;
+        }
+        String last = json.substring(start, json.length() - 1).trim();
+        if (!last.isEmpty() || !elements.isEmpty()) {
+            elements.add(last);
+        }
+        return elements;
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not a number, try a date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static String loadPluginVersion() {
+        // Get the plugin version to pass through as a request parameter
+        // TODO: In development this seems to pull from src/main/config.properties, instead of target/classes/properties
+        //       Once the plugin is compiled it will get the correct version string, but we could not figure out how
+        //       to get it looking at the right place in development
+        final Properties properties = new Properties();
+        try (InputStream stream = WebhookSender.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (stream != null) {
+                properties.load(stream);
+            }
+        } catch (IOException e) {
+            logger.error("Project properties does not exist. {}", e.toString());
+        }
+        return properties.getProperty("plugin.version", "");
+    }
+}
@@ -0,0 +1,72 @@
+package io.jenkins.plugins.opslevel.metrics;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Extension
+public class MetricsEndpoint implements RootAction {
+    // The notifier's metrics as JSON at JENKINS_URL/opslevel-metrics/, for Jenkins instances without the
+    // metrics plugin. Administrators only.
+
+    @Override
+    public String getIconFileName() {
+        // Not shown in the side panel
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OpsLevel Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "opslevel-metrics";
+    }
+
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(toJson(NotifierMetrics.get(), DeliveryQueue.get()).toString());
+    }
+
+    static JSONObject toJson(NotifierMetrics metrics, DeliveryQueue queue) {
+        JSONObject counters = new JSONObject();
+        for (Map.Entry<String, LongAdder> counter : metrics.getCounters().entrySet()) {
+            counters.put(counter.getKey(), counter.getValue().sum());
+        }
+
+        JSONObject timers = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> timer : metrics.getTimers().entrySet()) {
+            LatencyHistogram histogram = timer.getValue();
+            JSONObject summary = new JSONObject();
+            summary.put("count", histogram.getCount());
+            summary.put("mean_ms", histogram.getMeanMillis());
+            summary.put("p50_ms", histogram.getPercentileMillis(0.50));
+            summary.put("p95_ms", histogram.getPercentileMillis(0.95));
+            summary.put("p99_ms", histogram.getPercentileMillis(0.99));
+            summary.put("max_ms", histogram.getMaxMillis());
+            timers.put(timer.getKey(), summary);
+        }
+
+        JSONObject gauges = new JSONObject();
+        gauges.put("queue_depth", queue.getQueueDepth());
+        gauges.put("pending_retries", queue.getPendingRetries());
+        gauges.put("outbox_pending", queue.getOutboxPending());
+
+        JSONObject json = new JSONObject();
+        json.put("counters", counters);
+        json.put("timers", timers);
+        json.put("gauges", gauges);
+        return json;
+    }
+}
@@ -0,0 +1,111 @@
+package io.jenkins.plugins.opslevel.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+public class NotifierMetrics {
+    // Counters and latency histograms for the notify path, since Jenkins started. Read by the JSON endpoint
+    // and, when the metrics plugin is installed, published through it as well.
+
+    // Timers, in the order a deploy goes through them
+    public static final String ENV_TIME = "env";
+    public static final String COMMIT_TIME = "commit";
+    public static final String PAYLOAD_TIME = "payload";
+    public static final String HTTP_TIME = "http";
+    // From starting on the payload to OpsLevel's final answer, including time spent queued and retrying
+    public static final String TOTAL_TIME = "total";
+
+    // Counted per deploy, so a batch of deploys posted together counts once for each of them
+    public static final String SENT = "sent";
+    public static final String RETRIED = "retried";
+    // Deploys OpsLevel never accepted, after all their attempts
+    public static final String NOT_DELIVERED = "not_delivered";
+    public static final String DROPPED = "dropped";
+
+    public static final String SKIPPED_RESULT = "skipped.result";
+    public static final String SKIPPED_DISABLED = "skipped.disabled";
+    public static final String SKIPPED_IGNORED = "skipped.ignored";
+    public static final String SKIPPED_NO_WEBHOOK = "skipped.no_webhook";
+    public static final String SKIPPED_PIPELINE_STEP = "skipped.pipeline_step";
+    public static final String SKIPPED_ALREADY_DELIVERED = "skipped.already_delivered";
+
+    // Deploys in every failed post, counted by what went wrong
+    public static final String FAILED_TIMEOUT = "failed.timeout";
+    public static final String FAILED_CONNECT = "failed.connect";
+    public static final String FAILED_RATE_LIMITED = "failed.rate_limited";
+    public static final String FAILED_CLIENT_ERROR = "failed.client_error";
+    public static final String FAILED_SERVER_ERROR = "failed.server_error";
+    public static final String FAILED_CIRCUIT_OPEN = "failed.circuit_open";
+    public static final String FAILED_OTHER = "failed.other";
+
+    private static final NotifierMetrics INSTANCE = new NotifierMetrics();
+
+    // Fixed when constructed, so readers can list every metric up front
+    private final Map<String, LongAdder> counters;
+    private final Map<String, LatencyHistogram> timers;
+    private final List<TimingListener> timingListeners = new CopyOnWriteArrayList<>();
+
+    private NotifierMetrics() {
+        Map<String, LongAdder> counters = new LinkedHashMap<>();
+        for (String name : new String[] {SENT, RETRIED, NOT_DELIVERED, DROPPED,
+                                         SKIPPED_RESULT, SKIPPED_DISABLED, SKIPPED_IGNORED, SKIPPED_NO_WEBHOOK,
+                                         SKIPPED_PIPELINE_STEP, SKIPPED_ALREADY_DELIVERED,
+                                         FAILED_TIMEOUT, FAILED_CONNECT, FAILED_RATE_LIMITED, FAILED_CLIENT_ERROR,
+                                         FAILED_SERVER_ERROR, FAILED_CIRCUIT_OPEN, FAILED_OTHER}) {
+            counters.put(name, new LongAdder());
+        }
+        this.counters = Collections.unmodifiableMap(counters);
+
+        Map<String, LatencyHistogram> timers = new LinkedHashMap<>();
+        for (String name : new String[] {ENV_TIME, COMMIT_TIME, PAYLOAD_TIME, HTTP_TIME, TOTAL_TIME}) {
+            timers.put(name, new LatencyHistogram());
+        }
+        this.timers = Collections.unmodifiableMap(timers);
+    }
+
+    public static NotifierMetrics get() {
+        return INSTANCE;
+    }
+
+    public void increment(String counter) {
+        counters.get(counter).increment();
+    }
+
+    public void add(String counter, long count) {
+        counters.get(counter).add(count);
+    }
+
+    public long getCount(String counter) {
+        return counters.get(counter).sum();
+    }
+
+    // Use with System.nanoTime()
+    public void recordSince(String timer, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        timers.get(timer).record(nanos);
+        for (TimingListener listener : timingListeners) {
+            listener.record(timer, nanos);
+        }
+    }
+
+    // Also hands every recorded duration to the listener, which is how they reach the metrics plugin's timers
+    public void addTimingListener(TimingListener listener) {
+        timingListeners.add(listener);
+    }
+
+    public Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+
+    public Map<String, LatencyHistogram> getTimers() {
+        return timers;
+    }
+
+    public interface TimingListener {
+        void record(String timer, long nanos);
+    }
+}
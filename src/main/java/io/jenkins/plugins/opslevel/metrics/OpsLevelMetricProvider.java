@@ -0,0 +1,55 @@
+package io.jenkins.plugins.opslevel.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import hudson.Extension;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import jenkins.metrics.api.MetricProvider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Extension(optional = true)
+public class OpsLevelMetricProvider extends MetricProvider {
+    // Publishes the notifier's metrics through the metrics plugin, when it is installed. Counters and queue
+    // sizes are gauges over NotifierMetrics, and each duration NotifierMetrics records is also fed to a Timer
+    // of the plugin's own, so the notify path does not depend on the plugin being there.
+
+    private static final String PREFIX = "opslevel.";
+
+    private final Map<String, Metric> metrics;
+
+    public OpsLevelMetricProvider() {
+        NotifierMetrics notifierMetrics = NotifierMetrics.get();
+        Map<String, Metric> metrics = new LinkedHashMap<>();
+
+        for (Map.Entry<String, LongAdder> counter : notifierMetrics.getCounters().entrySet()) {
+            LongAdder value = counter.getValue();
+            metrics.put(PREFIX + "deploys." + counter.getKey(), (Gauge<Long>) value::sum);
+        }
+
+        Map<String, Timer> timers = new LinkedHashMap<>();
+        for (String name : notifierMetrics.getTimers().keySet()) {
+            Timer timer = new Timer();
+            timers.put(name, timer);
+            metrics.put(PREFIX + "notify." + name, timer);
+        }
+        notifierMetrics.addTimingListener((name, nanos) -> timers.get(name).update(nanos, TimeUnit.NANOSECONDS));
+
+        metrics.put(PREFIX + "queue.depth", (Gauge<Integer>) () -> DeliveryQueue.get().getQueueDepth());
+        metrics.put(PREFIX + "queue.pending_retries", (Gauge<Integer>) () -> DeliveryQueue.get().getPendingRetries());
+        metrics.put(PREFIX + "outbox.pending", (Gauge<Integer>) () -> DeliveryQueue.get().getOutboxPending());
+
+        this.metrics = Collections.unmodifiableMap(metrics);
+    }
+
+    @Override
+    public MetricSet getMetricSet() {
+        return () -> metrics;
+    }
+}
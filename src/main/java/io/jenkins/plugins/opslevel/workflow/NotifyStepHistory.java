@@ -0,0 +1,46 @@
+package io.jenkins.plugins.opslevel.workflow;
+
+import hudson.model.Run;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.graph.StepNode;
+import org.jenkinsci.plugins.workflow.graphanalysis.DepthFirstScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+public class NotifyStepHistory {
+    // Runs from before opsLevelNotify marked them with OpsLevelNotifiedAction only show the step in their
+    // flow graph. Reading it loads the whole graph from disk, so this is for the backfill, not for every run.
+    // Uses workflow-api, so only call it when that plugin is installed.
+
+    private static final Logger logger = LoggerFactory.getLogger(NotifyStepHistory.class);
+
+    private NotifyStepHistory() {
+    }
+
+    public static boolean usedNotifyStep(Run<?, ?> run) {
+        if (!(run instanceof FlowExecutionOwner.Executable)) {
+            return false;
+        }
+        FlowExecutionOwner owner = ((FlowExecutionOwner.Executable) run).asFlowExecutionOwner();
+        if (owner == null) {
+            return false;
+        }
+        try {
+            FlowExecution execution = owner.get();
+            return new DepthFirstScanner().findFirstMatch(execution, NotifyStepHistory::isNotifyStep) != null;
+        } catch (IOException e) {
+            // Sending it a second time is worse than not sending it
+            logger.warn("Could not read the flow graph of {}, assuming it used opsLevelNotify. {}",
+                        run.getExternalizableId(), e.toString());
+            return true;
+        }
+    }
+
+    private static boolean isNotifyStep(FlowNode node) {
+        return node instanceof StepNode && ((StepNode) node).getDescriptor() instanceof PipelineNotifyStep.DescriptorImpl;
+    }
+}
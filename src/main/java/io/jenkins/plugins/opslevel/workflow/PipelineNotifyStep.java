@@ -2,31 +2,54 @@ package io.jenkins.plugins.opslevel.workflow;
 
 import com.google.common.collect.ImmutableSet;
 import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.FilePath;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import io.jenkins.plugins.opslevel.GlobalConfigUI;
 import io.jenkins.plugins.opslevel.JobListener;
 import io.jenkins.plugins.opslevel.OpsLevelConfig;
-import io.jenkins.plugins.opslevel.OpsLevelJobProperty;
+import io.jenkins.plugins.opslevel.OpsLevelNotifiedAction;
+import io.jenkins.plugins.opslevel.delivery.Delivery;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
-import org.jenkinsci.plugins.workflow.steps.SynchronousStepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
 
 public class PipelineNotifyStep extends Step {
 
     private static final Logger logger = LoggerFactory.getLogger(JobListener.class);
 
+    // Builds the payload for opsLevelNotify steps, off the CPS VM thread. A few threads are plenty: they only
+    // build and queue the deploy, and steps started while they are busy wait their turn.
+    private static final int WORKER_THREADS = 4;
+    private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(
+            WORKER_THREADS, WORKER_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), "OpsLevel notify step"));
+
+    static {
+        workers.allowCoreThreadTimeOut(true);
+    }
+
     private boolean run = true;
     private String webhookUrl = "";
+    private List<String> webhookUrls = new ArrayList<>();
     private String serviceAlias = "";
     private String environment = "";
     private String description = "";
@@ -34,6 +57,7 @@ public class PipelineNotifyStep extends Step {
     private String deployerId = "";
     private String deployerEmail = "";
     private String deployerName = "";
+    private boolean wait = true;
 
     @DataBoundConstructor
     public PipelineNotifyStep() {
@@ -49,6 +73,11 @@ public class PipelineNotifyStep extends Step {
         this.webhookUrl = webhookUrl;
     }
 
+    @DataBoundSetter
+    public void setWebhookUrls(List<String> webhookUrls) {
+        this.webhookUrls = webhookUrls == null ? new ArrayList<>() : new ArrayList<>(webhookUrls);
+    }
+
     @DataBoundSetter
     public void setServiceAlias(String serviceAlias) {
         this.serviceAlias = serviceAlias;
@@ -84,11 +113,20 @@ public class PipelineNotifyStep extends Step {
         this.deployerName = deployerName;
     }
 
+    @DataBoundSetter
+    public void setWait(boolean wait) {
+        this.wait = wait;
+    }
+
     @Override
     public StepExecution start(StepContext context) {
         OpsLevelConfig config = new OpsLevelConfig();
         config.run = this.run;
-        config.webhookUrl = this.webhookUrl;
+        // webhookUrl and webhookUrls both name targets, the deploy goes to all of them
+        List<String> targets = new ArrayList<>();
+        targets.add(this.webhookUrl);
+        targets.addAll(this.webhookUrls);
+        config.webhookUrl = String.join(",", targets);
         config.serviceAlias = this.serviceAlias;
         config.environment = this.environment;
         config.description = this.description;
@@ -96,7 +134,7 @@ public class PipelineNotifyStep extends Step {
         config.deployerId = this.deployerId;
         config.deployerEmail = this.deployerEmail;
         config.deployerName = this.deployerName;
-        return new OpsLevelNotifyStepExecute(context, config);
+        return new OpsLevelNotifyStepExecute(context, config, this.wait);
     }
 
     @Extension
@@ -118,51 +156,135 @@ public class PipelineNotifyStep extends Step {
         }
     }
 
-    public static class OpsLevelNotifyStepExecute extends SynchronousStepExecution<StepExecution> {
+    public static class OpsLevelNotifyStepExecute extends StepExecution {
+        // Runs on a worker thread rather than the CPS VM thread, which is shared by every pipeline.
+        // The step completes once OpsLevel has answered, or as soon as the deploy is queued when wait is false.
 
-        private transient final OpsLevelConfig config;
-        private transient Run run = null;
-        private transient TaskListener listener = null;
+        private final OpsLevelConfig config;
+        private final boolean wait;
+        // The id of this step's node in the flow graph, part of the deploy's dedup id
+        private String stepId = null;
+        private transient volatile Future<?> task = null;
+        private transient volatile List<Delivery> deliveries = null;
+        // Set once the step has told the pipeline it is done, so stop() and OpsLevel's answer can't both do it
+        private transient boolean completed = false;
 
         // If you add/remove/change any fields above, increment this number
         // https://howtodoinjava.com/java/serialization/serialversionuid/
-        private static final long serialVersionUID = 1L;
+        private static final long serialVersionUID = 4L;
 
-        OpsLevelNotifyStepExecute(StepContext context, OpsLevelConfig config) {
+        OpsLevelNotifyStepExecute(StepContext context, OpsLevelConfig config, boolean wait) {
             super(context);
             this.config = config;
-            try {
-                this.run = context.get(Run.class);
-                this.listener = context.get(TaskListener.class);
-            } catch (Exception e) {
-                e.printStackTrace();
+            this.wait = wait;
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            // Suppress the global notifier for this run even if run is false
+            Run run = getContext().get(Run.class);
+            if (run != null) {
+                OpsLevelNotifiedAction.markNotified(run);
+            }
+            // Every step of a run has its own node, whose id is stored with the flow graph. Kept with the
+            // execution as well, so a resumed step sends the same deploy again without saving anything here.
+            FlowNode node = getContext().get(FlowNode.class);
+            if (node != null) {
+                stepId = node.getId();
             }
+            task = workers.submit(this::notifyOpsLevel);
+            return false;
         }
 
         @Override
-        protected StepExecution run() throws Exception {
-            if (this.run == null || this.listener == null) {
-                return null;
+        public void onResume() {
+            // Jenkins restarted while we were notifying, so build and queue the deploy again
+            task = workers.submit(this::notifyOpsLevel);
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            Future<?> running = task;
+            if (running != null) {
+                running.cancel(true);
             }
+            // The deploy is still delivered, but this step's log is finished with
+            detachConsole();
+            fail(cause);
+        }
+
+        @Override
+        public String getStatus() {
+            return wait ? "waiting for OpsLevel to accept the deploy" : "queueing the deploy for OpsLevel";
+        }
 
-            // Suppress the global notifier even if run is false
-            OpsLevelJobProperty jobProp = new OpsLevelJobProperty();
+        private void notifyOpsLevel() {
+            StepContext context = getContext();
             try {
-                this.run.getParent().addProperty(jobProp);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
+                Run run = context.get(Run.class);
+                TaskListener listener = context.get(TaskListener.class);
+                // Only available when the step runs inside a node block
+                FilePath workspace = context.get(FilePath.class);
+                if (run == null || listener == null) {
+                    succeed();
+                    return;
+                }
+
+                if (!config.run) {
+                    succeed();
+                    return;
+                }
+
+                GlobalConfigUI.DescriptorImpl.get().getOpsLevelConfig().populateEmptyValuesOf(this.config);
+                List<Delivery> queued = ExtensionList.lookupSingleton(JobListener.class)
+                        .queueDeploy(run, listener, this.config, workspace, stepId);
+                if (queued == null) {
+                    succeed();
+                    return;
+                }
+                deliveries = queued;
+                if (!wait) {
+                    // The step's log is closed once it completes, so say so now and keep the rest out of it
+                    listener.getLogger().println("OpsLevel notifier: the deploy is queued. Its outcome will be " +
+                                                 "shown under Manage Jenkins > OpsLevel Deliveries.");
+                    detachConsole();
+                    succeed();
+                    return;
+                }
+                // Show the response in this step's output, without holding a thread while we wait for it
+                JobListener.allAccepted(queued).whenComplete((accepted, error) -> succeed());
+            } catch (Exception e) {
+                fail(e);
             }
+        }
+
+        private void detachConsole() {
+            List<Delivery> queued = deliveries;
+            if (queued != null) {
+                for (Delivery delivery : queued) {
+                    delivery.detachConsole();
+                }
+            }
+        }
 
-            if (!config.run) {
-                return null;
+        private synchronized boolean complete() {
+            if (completed) {
+                return false;
             }
+            completed = true;
+            return true;
+        }
 
-            OpsLevelConfig globalConfig = new GlobalConfigUI.DescriptorImpl().getOpsLevelConfig();
-            this.config.populateEmptyValuesFrom(globalConfig);
-            new JobListener().postDeployToOpsLevel(this.run, this.listener, this.config);
+        private void succeed() {
+            if (complete()) {
+                getContext().onSuccess(null);
+            }
+        }
 
-            return null;
+        private void fail(Throwable cause) {
+            if (complete()) {
+                getContext().onFailure(cause);
+            }
         }
     }
 }
@@ -0,0 +1,114 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.util.StreamTaskListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.FailureBuilder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DeployBackfillTest {
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    MockWebServer server = new MockWebServer();
+
+    @Test
+    public void testBackfillsPastDeploysOnce() throws Exception {
+        // Built before OpsLevel was set up, so nothing was sent then
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        jenkins.buildAndAssertSuccess(project);
+        project.getBuildersList().add(new FailureBuilder());
+        jenkins.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        project.getBuildersList().clear();
+        jenkins.buildAndAssertSuccess(project);
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setWebhookUrl(server.url("").toString());
+        descriptor.setDeliveryThreads(0);
+        descriptor.applyDeliverySettings();
+
+        File checkpoints = new File(folder.getRoot(), "backfill.properties");
+        DeployBackfill backfill = new DeployBackfill(Collections.singletonList(project.getFullName()), 1, false,
+                                                     new DeployBackfill.Checkpoints(checkpoints),
+                                                     StreamTaskListener.fromStdout());
+        backfill.run();
+
+        Assert.assertEquals(DeployBackfill.State.FINISHED, backfill.getState());
+        Assert.assertEquals(3, backfill.getScanned());
+        Assert.assertEquals(1, backfill.getSkipped());
+        Assert.assertEquals(2, backfill.getAccepted());
+        RecordedRequest first = server.takeRequest(10, TimeUnit.SECONDS);
+        RecordedRequest second = server.takeRequest(10, TimeUnit.SECONDS);
+        assertThat(first.getBody().readUtf8(), containsString("\"deploy_number\":\"1\""));
+        assertThat(second.getBody().readUtf8(), containsString("\"deploy_number\":\"3\""));
+        Assert.assertEquals(3, new DeployBackfill.Checkpoints(checkpoints).get(project.getFullName()));
+
+        // Carries on from the checkpoint, which leaves nothing to do
+        DeployBackfill again = new DeployBackfill(Collections.singletonList(project.getFullName()), 1, false,
+                                                  new DeployBackfill.Checkpoints(checkpoints),
+                                                  StreamTaskListener.fromStdout());
+        again.run();
+        Assert.assertEquals(0, again.getScanned());
+        Assert.assertEquals(2, server.getRequestCount());
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testSkipsPipelineRunsThatUsedTheStep() throws Exception {
+        WorkflowJob project = jenkins.createProject(WorkflowJob.class);
+        project.setDefinition(new CpsFlowDefinition("opsLevelNotify run: false", true));
+        WorkflowRun notified = jenkins.buildAndAssertSuccess(project);
+        // Like a run from before the step marked its run
+        notified.removeAction(notified.getAction(OpsLevelNotifiedAction.class));
+        notified.save();
+        project.setDefinition(new CpsFlowDefinition("echo 'deploying'", true));
+        jenkins.buildAndAssertSuccess(project);
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setWebhookUrl(server.url("").toString());
+        descriptor.setDeliveryThreads(0);
+        descriptor.applyDeliverySettings();
+
+        File checkpoints = new File(folder.getRoot(), "backfill.properties");
+        DeployBackfill backfill = new DeployBackfill(Collections.singletonList(project.getFullName()), 1, false,
+                                                     new DeployBackfill.Checkpoints(checkpoints),
+                                                     StreamTaskListener.fromStdout());
+        backfill.run();
+
+        Assert.assertEquals(DeployBackfill.State.FINISHED, backfill.getState());
+        Assert.assertEquals(2, backfill.getScanned());
+        Assert.assertEquals(1, backfill.getSkipped());
+        Assert.assertEquals(1, backfill.getAccepted());
+        RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+        assertThat(request.getBody().readUtf8(), containsString("\"deploy_number\":\"2\""));
+        Assert.assertEquals(1, server.getRequestCount());
+
+        server.shutdown();
+    }
+}
@@ -0,0 +1,111 @@
+package io.jenkins.plugins.opslevel;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class GitCommitReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadsLooseCommit() throws Exception {
+        File workTree = unzip("/project-with-git.zip");
+
+        CommitInfo commit = GitCommitReader.read(workTree, "500ca67ed52a9ca20f3181e618347e61f86a0625");
+        Assert.assertNotNull(commit);
+        Assert.assertEquals("Fix typo", commit.subject);
+        Assert.assertNotNull(commit.authorName);
+        Assert.assertTrue(commit.authorTime > 0);
+    }
+
+    @Test
+    public void testReadsPackedCommits() throws Exception {
+        // Packed by git gc, which stores every older commit as an offset delta against the newest one
+        File workTree = unzip("/project-with-packed-git.zip");
+
+        CommitInfo base = GitCommitReader.read(workTree, "621b44a0f7a6f348e7d55493caf6374525ce24fb");
+        Assert.assertNotNull(base);
+        Assert.assertEquals("Release 6 of the example project", base.subject);
+
+        CommitInfo deltified = GitCommitReader.read(workTree, "f316ce1694355898dbc622d15c2bcf6a8f579435");
+        Assert.assertNotNull(deltified);
+        Assert.assertEquals("Release 1 of the example project", deltified.subject);
+        Assert.assertEquals("Yumyulack", deltified.authorName);
+        Assert.assertEquals("yumyulack@example.org", deltified.authorEmail);
+        Assert.assertEquals(1621623600L, deltified.authorTime);
+
+        Assert.assertNull(GitCommitReader.read(workTree, "0000000000000000000000000000000000000000"));
+    }
+
+    @Test
+    public void testReadsCommitDeltifiedAgainstNamedBase() throws Exception {
+        // Packed with repack.useDeltaBaseOffset=false, so the deltas name their base by SHA instead
+        File workTree = unzip("/project-with-ref-delta-git.zip");
+
+        CommitInfo deltified = GitCommitReader.read(workTree, "fa0e43f2e2433a919c02dcfae4b1d11a4701b8a4");
+        Assert.assertNotNull(deltified);
+        Assert.assertEquals("Release 3 of the example project", deltified.subject);
+        Assert.assertEquals(1623610800L, deltified.authorTime);
+    }
+
+    @Test
+    public void testMissingRepositoryOrCommit() throws Exception {
+        Assert.assertNull(GitCommitReader.read(folder.newFolder(), "500ca67ed52a9ca20f3181e618347e61f86a0625"));
+        Assert.assertNull(GitCommitReader.read(unzip("/project-with-git.zip"), "not-a-sha"));
+        Assert.assertNull(GitCommitReader.read(unzip("/project-with-git.zip"), "0000000000000000000000000000000000000000"));
+    }
+
+    @Test
+    public void testParsesCommitObject() {
+        String text = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+                      "author Yumyulack <yumyulack@example.org> 1617000000 -0700\n" +
+                      "committer Yumyulack <yumyulack@example.org> 1617000000 -0700\n" +
+                      "\n" +
+                      "Deploy the lake house\n" +
+                      "device to staging\n" +
+                      "\n" +
+                      "Longer description that is not part of the subject\n";
+        CommitInfo commit = GitCommitReader.parseCommit("abc", text);
+        Assert.assertEquals("Deploy the lake house device to staging", commit.subject);
+        Assert.assertEquals("Yumyulack", commit.authorName);
+        Assert.assertEquals("yumyulack@example.org", commit.authorEmail);
+        Assert.assertEquals(1617000000L, commit.authorTime);
+    }
+
+    @Test
+    public void testAppliesDelta() throws Exception {
+        byte[] base = "hello world".getBytes("UTF-8");
+        // Sizes 11 -> 13, copy "hello " from the base, then insert "jenkins"
+        byte[] delta = {11, 13, (byte) 0x90, 6, 7, 'j', 'e', 'n', 'k', 'i', 'n', 's'};
+        Assert.assertEquals("hello jenkins", new String(GitCommitReader.applyDelta(base, delta), "UTF-8"));
+    }
+
+    private File unzip(String resource) throws Exception {
+        File target = folder.newFolder();
+        try (ZipInputStream zip = new ZipInputStream(getClass().getResourceAsStream(resource))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                File file = new File(target, entry.getName());
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                try (OutputStream out = new FileOutputStream(file)) {
+                    IOUtils.copy(zip, out);
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,63 @@
+package io.jenkins.plugins.opslevel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IgnoreListMatcherTest {
+
+    private final IgnoreListMatcher matcher = IgnoreListMatcher.compile(
+            "backend deploy - staging, team-a/, org/team-b/, *-staging, re:(.*)-(dev|qa), re:([broken");
+
+    @Test
+    public void testMatchesExactNames() {
+        Assert.assertEquals("backend deploy - staging", matcher.match("backend deploy - staging ", "backend"));
+        Assert.assertNull(matcher.match("backend deploy", "backend"));
+    }
+
+    @Test
+    public void testMatchesEverythingInsideAFolder() {
+        Assert.assertEquals("team-a/", matcher.match("team-a \u00bb web", "team-a/web"));
+        Assert.assertEquals("org/team-b/", matcher.match("org \u00bb team-b \u00bb nested \u00bb api", "org/team-b/nested/api"));
+        // The folder itself is not a build inside it
+        Assert.assertNull(matcher.match("team-a", "team-a"));
+        Assert.assertNull(matcher.match("org \u00bb web", "org/web"));
+    }
+
+    @Test
+    public void testMatchesGlobsAndRegularExpressions() {
+        Assert.assertEquals("*-staging", matcher.match("web-staging", "web-staging"));
+        Assert.assertEquals("re:(.*)-(dev|qa)", matcher.match("folder \u00bb web-qa", "folder/web-qa"));
+        Assert.assertNull(matcher.match("web-production", "web-production"));
+    }
+
+    @Test
+    public void testMatchesGlobsInListOrder() {
+        IgnoreListMatcher globs = IgnoreListMatcher.compile("web-*, *-qa, release-??, *a*b*c, ***");
+        Assert.assertEquals("web-*", globs.match("web-qa", "web-qa"));
+        Assert.assertEquals("*-qa", globs.match("api-qa", "api-qa"));
+        Assert.assertEquals("release-??", globs.match("release-42", "release-42"));
+        Assert.assertEquals("*a*b*c", globs.match("xaxxbxc", "xaxxbxc"));
+        Assert.assertEquals("***", globs.match("release-421", "release-421"));
+
+        IgnoreListMatcher literal = IgnoreListMatcher.compile("release-?, app.*");
+        Assert.assertNull(literal.match("release-42", "release-42"));
+        // Only * and ? are special, the dot is an ordinary character
+        Assert.assertNull(literal.match("appx", "appx"));
+        Assert.assertEquals("app.*", literal.match("app.web", "app.web"));
+    }
+
+    @Test
+    public void testKeepsBackreferencesInRegularExpressions() {
+        IgnoreListMatcher backreferences = IgnoreListMatcher.compile("*-qa, re:(\\w+)-\\1, re:(a)(b)\\2\\1");
+        Assert.assertEquals("re:(\\w+)-\\1", backreferences.match("web-web", "web-web"));
+        Assert.assertNull(backreferences.match("web-api", "web-api"));
+        Assert.assertEquals("re:(a)(b)\\2\\1", backreferences.match("abba", "abba"));
+    }
+
+    @Test
+    public void testEmptyList() {
+        IgnoreListMatcher empty = IgnoreListMatcher.compile(" , ");
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertNull(empty.match("anything", "anything"));
+    }
+}
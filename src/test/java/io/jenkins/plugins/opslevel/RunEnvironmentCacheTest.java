@@ -0,0 +1,54 @@
+package io.jenkins.plugins.opslevel;
+
+import hudson.EnvVars;
+import hudson.model.EnvironmentContributor;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+
+public class RunEnvironmentCacheTest {
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testResolvesTheEnvironmentOncePerRun() throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        int before = CountingContributor.calls.get();
+        EnvVars env = RunEnvironmentCache.get(build, TaskListener.NULL);
+        env.put("CHANGED_BY_CALLER", "true");
+        EnvVars again = RunEnvironmentCache.get(build, TaskListener.NULL);
+        Assert.assertEquals(before + 1, CountingContributor.calls.get());
+        Assert.assertEquals("1", again.get("BUILD_NUMBER"));
+        Assert.assertNull(again.get("CHANGED_BY_CALLER"));
+
+        // A new action may contribute variables, so it is resolved again
+        build.addAction(new InvisibleAction() {});
+        RunEnvironmentCache.get(build, TaskListener.NULL);
+        Assert.assertEquals(before + 2, CountingContributor.calls.get());
+
+        RunEnvironmentCache.evict(build);
+        Assert.assertEquals(0, RunEnvironmentCache.size());
+    }
+
+    @TestExtension
+    public static class CountingContributor extends EnvironmentContributor {
+        static final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void buildEnvironmentFor(@Nonnull Run r, @Nonnull EnvVars envs, @Nonnull TaskListener listener) {
+            calls.incrementAndGet();
+        }
+    }
+}
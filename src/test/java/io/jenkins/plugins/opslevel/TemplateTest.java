@@ -0,0 +1,50 @@
+package io.jenkins.plugins.opslevel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+public class TemplateTest {
+
+    private final Map<String, String> env = new HashMap<>();
+
+    public TemplateTest() {
+        env.put("BUILD_NUMBER", "7");
+        env.put("JOB_NAME", "web");
+    }
+
+    @Test
+    public void testSubstitutesVariables() {
+        Assert.assertEquals("Jenkins Deploy #7", render("Jenkins Deploy #${BUILD_NUMBER}"));
+        Assert.assertEquals("plain text", render("plain text"));
+        Assert.assertEquals("", render(""));
+    }
+
+    @Test
+    public void testLeavesUnknownVariablesAlone() {
+        Assert.assertEquals("web-${MISSING}", render("${JOB_NAME}-${MISSING}"));
+        Assert.assertEquals("${unterminated", render("${unterminated"));
+    }
+
+    @Test
+    public void testDefaultsAndEscapes() {
+        Assert.assertEquals("fallback/web", render("${MISSING:-fallback}/${JOB_NAME:-other}"));
+        Assert.assertEquals("${JOB_NAME} web", render("$${JOB_NAME} ${JOB_NAME}"));
+    }
+
+    @Test
+    public void testReportsReferencedVariables() {
+        Template template = Template.compile("${JOB_NAME} #${BUILD_NUMBER} (${JOB_NAME}) ${MISSING:-none} $${ESCAPED}");
+        Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("JOB_NAME", "BUILD_NUMBER", "MISSING")), template.getVariables());
+        Assert.assertEquals("web #7 (web) none ${ESCAPED}", template.render(env::get));
+        Assert.assertSame(template, Template.compile("${JOB_NAME} #${BUILD_NUMBER} (${JOB_NAME}) ${MISSING:-none} $${ESCAPED}"));
+    }
+
+    private String render(String template) {
+        return Template.compile(template).render(env::get);
+    }
+}
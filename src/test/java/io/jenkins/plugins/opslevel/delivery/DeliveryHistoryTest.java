@@ -0,0 +1,53 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DeliveryHistoryTest {
+
+    private static DeliveryRecord record(String source) {
+        return new DeliveryRecord(0, "example.com:443", source, "service", 1, 10, 200, "Delivered", "{}");
+    }
+
+    @Test
+    public void testKeepsTheMostRecentNewestFirst() {
+        DeliveryHistory history = new DeliveryHistory(4);
+        Assert.assertTrue(history.getRecent().isEmpty());
+        for (int i = 1; i <= 6; i++) {
+            history.add(record("job#" + i));
+        }
+
+        List<DeliveryRecord> recent = history.getRecent();
+        Assert.assertEquals(4, recent.size());
+        Assert.assertEquals("job#6", recent.get(0).getSource());
+        Assert.assertEquals("job#3", recent.get(3).getSource());
+        Assert.assertEquals(6, history.getTotal());
+    }
+
+    @Test
+    public void testRoundsCapacityUpToAPowerOfTwo() {
+        Assert.assertEquals(256, new DeliveryHistory(256).getCapacity());
+        Assert.assertEquals(8, new DeliveryHistory(5).getCapacity());
+        Assert.assertEquals(2, new DeliveryHistory(1).getCapacity());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        DeliveryHistory history = new DeliveryHistory(64);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10000; i++) {
+            String source = "job#" + i;
+            writers.submit(() -> history.add(record(source)));
+        }
+        writers.shutdown();
+        Assert.assertTrue(writers.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(10000, history.getTotal());
+        Assert.assertEquals(64, history.getRecent().size());
+    }
+}
@@ -0,0 +1,67 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class DeliveryLedgerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Delivery delivery(String webhookUrl, String dedupId) {
+        return new Delivery(webhookUrl, "{}".getBytes(StandardCharsets.UTF_8), dedupId, "test#1", null);
+    }
+
+    @Test
+    public void testRemembersDeliveredDeploysAcrossRestarts() throws Exception {
+        File file = new File(folder.getRoot(), "delivered.log");
+        DeliveryLedger ledger = new DeliveryLedger(file, 100);
+        ledger.load();
+        ledger.record(delivery("http://a/", "1"));
+        Assert.assertTrue(ledger.contains(delivery("http://a/", "1")));
+        Assert.assertFalse(ledger.contains(delivery("http://a/", "2")));
+        // The same deploy to another webhook is a different delivery
+        Assert.assertFalse(ledger.contains(delivery("http://b/", "1")));
+        ledger.close();
+
+        DeliveryLedger reloaded = new DeliveryLedger(file, 100);
+        reloaded.load();
+        Assert.assertTrue(reloaded.contains(delivery("http://a/", "1")));
+        reloaded.close();
+    }
+
+    @Test
+    public void testForgetsTheOldestDeploys() throws Exception {
+        File file = new File(folder.getRoot(), "delivered.log");
+        DeliveryLedger ledger = new DeliveryLedger(file, 10);
+        ledger.load();
+        for (int i = 0; i < 50; i++) {
+            ledger.record(delivery("http://a/", Integer.toString(i)));
+        }
+        Assert.assertEquals(10, ledger.size());
+        Assert.assertFalse(ledger.contains(delivery("http://a/", "0")));
+        Assert.assertTrue(ledger.contains(delivery("http://a/", "49")));
+        ledger.close();
+
+        DeliveryLedger reloaded = new DeliveryLedger(file, 10);
+        reloaded.load();
+        Assert.assertEquals(10, reloaded.size());
+        Assert.assertTrue(reloaded.contains(delivery("http://a/", "40")));
+        reloaded.close();
+    }
+
+    @Test
+    public void testIgnoresDeploysWithoutDedupId() throws Exception {
+        DeliveryLedger ledger = new DeliveryLedger(new File(folder.getRoot(), "delivered.log"), 10);
+        ledger.load();
+        ledger.record(delivery("http://a/", ""));
+        Assert.assertFalse(ledger.contains(delivery("http://a/", "")));
+        Assert.assertEquals(0, ledger.size());
+        ledger.close();
+    }
+}
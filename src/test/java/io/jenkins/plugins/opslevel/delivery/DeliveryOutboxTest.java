@@ -0,0 +1,85 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class DeliveryOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Delivery delivery(String service) {
+        String payload = "{\"service\":\"" + service + "\",\"description\":\"Deployed from a test of the outbox\"}";
+        return new Delivery("http://a/", payload.getBytes(StandardCharsets.UTF_8), service, "test#1", null);
+    }
+
+    @Test
+    public void testSkipsEntryCutShortByACrash() throws Exception {
+        DeliveryOutbox outbox = new DeliveryOutbox(folder.getRoot());
+        outbox.recover();
+        outbox.journal(delivery("first"));
+        outbox.journal(delivery("second"));
+        outbox.close();
+
+        // Lose the end of the second entry's payload, and its newline
+        File[] segments = folder.getRoot().listFiles();
+        Assert.assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        DeliveryOutbox reopened = new DeliveryOutbox(folder.getRoot());
+        List<Delivery> unacknowledged = reopened.recover();
+        reopened.close();
+        Assert.assertEquals(1, unacknowledged.size());
+        Assert.assertEquals("first", unacknowledged.get(0).getDedupId());
+    }
+
+    @Test
+    public void testCarriesLongPendingDeploysForward() throws Exception {
+        DeliveryOutbox outbox = new DeliveryOutbox(folder.getRoot(), 1024);
+        outbox.recover();
+        // Never finished, like a deploy that is still being retried
+        outbox.journal(delivery("retrying"));
+        for (int i = 0; i < 200; i++) {
+            Delivery delivered = delivery("delivered-" + i);
+            outbox.journal(delivered);
+            outbox.acknowledge(delivered);
+            Assert.assertTrue(folder.getRoot().listFiles().length <= 3);
+        }
+        Assert.assertEquals(1, outbox.getPendingCount());
+        outbox.close();
+
+        DeliveryOutbox reopened = new DeliveryOutbox(folder.getRoot(), 1024);
+        List<Delivery> unacknowledged = reopened.recover();
+        reopened.close();
+        Assert.assertEquals(1, unacknowledged.size());
+        Assert.assertEquals("retrying", unacknowledged.get(0).getDedupId());
+    }
+
+    @Test
+    public void testDoesNotReplayGivenUpDeploys() throws Exception {
+        DeliveryOutbox outbox = new DeliveryOutbox(folder.getRoot());
+        outbox.recover();
+        Delivery refused = delivery("refused");
+        outbox.journal(refused);
+        outbox.journal(delivery("in-flight"));
+        outbox.giveUp(refused);
+        // Forgotten right away, not kept until the next restart
+        Assert.assertEquals(1, outbox.getPendingCount());
+        outbox.close();
+
+        DeliveryOutbox reopened = new DeliveryOutbox(folder.getRoot());
+        List<Delivery> unacknowledged = reopened.recover();
+        reopened.close();
+        Assert.assertEquals(1, unacknowledged.size());
+        Assert.assertEquals("in-flight", unacknowledged.get(0).getDedupId());
+    }
+}
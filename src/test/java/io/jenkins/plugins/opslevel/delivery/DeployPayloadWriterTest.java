@@ -0,0 +1,86 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class DeployPayloadWriterTest {
+
+    private static JsonObject parse(DeployPayload payload) {
+        String json = new String(DeployPayloadWriter.toBytes(payload), StandardCharsets.UTF_8);
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+
+    @Test
+    public void testWritesAllFields() {
+        DeployPayload payload = new DeployPayload();
+        payload.dedupId = "abc";
+        payload.deployNumber = "7";
+        payload.deployUrl = "http://jenkins/job/test0/7/";
+        payload.deployedAt = "2021-05-01T10:00:00Z";
+        payload.description = "Jenkins Deploy #7";
+        payload.environment = "Production";
+        payload.service = "test0";
+        payload.deployer = new DeployPayload.Deployer();
+        payload.deployer.name = "Jenkins";
+        payload.commit = new DeployPayload.Commit();
+        payload.commit.sha = "500ca67ed52a9ca20f3181e618347e61f86a0625";
+        payload.commit.message = "Fix typo";
+
+        JsonObject json = parse(payload);
+        Assert.assertEquals("abc", json.getString("dedup_id"));
+        Assert.assertEquals("7", json.getString("deploy_number"));
+        Assert.assertEquals("http://jenkins/job/test0/7/", json.getString("deploy_url"));
+        Assert.assertEquals("2021-05-01T10:00:00Z", json.getString("deployed_at"));
+        Assert.assertEquals("Jenkins Deploy #7", json.getString("description"));
+        Assert.assertEquals("Production", json.getString("environment"));
+        Assert.assertEquals("test0", json.getString("service"));
+        Assert.assertEquals("Jenkins", json.getJsonObject("deployer").getString("name"));
+        Assert.assertFalse(json.getJsonObject("deployer").containsKey("id"));
+        Assert.assertEquals("Fix typo", json.getJsonObject("commit").getString("message"));
+        Assert.assertFalse(json.getJsonObject("commit").containsKey("branch"));
+    }
+
+    @Test
+    public void testLeavesOutMissingDeployerAndCommit() {
+        DeployPayload payload = new DeployPayload();
+        payload.dedupId = "abc";
+
+        JsonObject json = parse(payload);
+        Assert.assertFalse(json.containsKey("deployer"));
+        Assert.assertFalse(json.containsKey("commit"));
+        Assert.assertTrue(json.isNull("service"));
+    }
+
+    @Test
+    public void testEscapesStrings() {
+        String description = "Fix \"typo\"\n\tin C:\\temp \u0001 caf\u00e9 \ud83d\ude00";
+        DeployPayload payload = new DeployPayload();
+        payload.description = description;
+
+        byte[] bytes = DeployPayloadWriter.toBytes(payload);
+        String json = new String(bytes, StandardCharsets.UTF_8);
+        Assert.assertFalse(json.contains("\n"));
+        Assert.assertFalse(json.contains("\t"));
+        Assert.assertEquals(description, parse(payload).getString("description"));
+    }
+
+    @Test
+    public void testSplitsBatchResults() {
+        List<String> results = WebhookSender.splitResults("[{\"result\": \"ok\"}, {\"error\": \"a, [b]\"}]", 2);
+        Assert.assertEquals("{\"result\": \"ok\"}", results.get(0));
+        Assert.assertEquals("{\"error\": \"a, [b]\"}", results.get(1));
+
+        // Anything that is not one result per deploy is shown to every deploy
+        results = WebhookSender.splitResults("{\"result\": \"ok\"}", 2);
+        Assert.assertEquals("{\"result\": \"ok\"}", results.get(1));
+    }
+}
@@ -0,0 +1,56 @@
+package io.jenkins.plugins.opslevel.delivery;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class ResponseReaderTest {
+
+    @Test
+    public void testFindsTheMessage() {
+        Assert.assertEquals("ok", ResponseReader.message("{\"result\": \"ok\"}"));
+        Assert.assertEquals("Example not found", ResponseReader.message("{\"error\":\"Example not found\"}"));
+        Assert.assertEquals("say \"hi\"", ResponseReader.message("{\"id\": 3, \"message\": \"say \\\"hi\\\"\"}"));
+    }
+
+    @Test
+    public void testNoMessage() {
+        Assert.assertNull(ResponseReader.message("<html><body>Bad Gateway</body></html>"));
+        Assert.assertNull(ResponseReader.message("{\"result\": 1}"));
+        // Cut off by the response limit
+        Assert.assertNull(ResponseReader.message("{\"error\": \"Something went wr"));
+    }
+
+    @Test
+    public void testDoesNotSplitACharacterAtTheLimit() throws Exception {
+        // The euro sign is three bytes in UTF-8, and the limit falls after the first two of them
+        String error = "{\"error\": \"Over budget by 5\u20ac\"}";
+        byte[] body = error.getBytes(StandardCharsets.UTF_8);
+        int limit = error.indexOf('\u20ac') + 2;
+
+        SendResult result = ResponseReader.read(response(body), limit);
+        Assert.assertEquals("{\"error\": \"Over budget by 5... [truncated, " + body.length + " bytes]",
+                            result.getBody());
+
+        // With all three bytes inside the limit the character is kept
+        result = ResponseReader.read(response(body), limit + 1);
+        Assert.assertEquals("{\"error\": \"Over budget by 5\u20ac... [truncated, " + body.length + " bytes]",
+                            result.getBody());
+    }
+
+    private static Response response(byte[] body) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(400)
+                .message("Bad Request")
+                .body(ResponseBody.create(body, MediaType.get("application/json; charset=utf-8")))
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package io.jenkins.plugins.opslevel.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testReportsPercentilesWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 95; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1000));
+        }
+
+        Assert.assertEquals(100, histogram.getCount());
+        double p50 = histogram.getPercentileMillis(0.50);
+        Assert.assertTrue(p50 >= 10 && p50 <= 20);
+        double p95 = histogram.getPercentileMillis(0.95);
+        Assert.assertTrue(p95 >= 10 && p95 <= 20);
+        Assert.assertEquals(1000, histogram.getPercentileMillis(0.99), 0.001);
+        Assert.assertEquals(1000, histogram.getMaxMillis(), 0.001);
+        Assert.assertEquals(59.5, histogram.getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentileMillis(0.99), 0);
+        Assert.assertEquals(0, histogram.getMeanMillis(), 0);
+    }
+}
@@ -2,8 +2,15 @@ package io.jenkins.plugins.opslevel.workflow;
 
 import hudson.EnvVars;
 import hudson.slaves.EnvironmentVariablesNodeProperty;
+import io.jenkins.plugins.opslevel.GlobalConfigUI;
 import io.jenkins.plugins.opslevel.JobListener;
+import io.jenkins.plugins.opslevel.delivery.DeliveryQueue;
+import io.jenkins.plugins.opslevel.delivery.DeliveryRecord;
+import io.jenkins.plugins.opslevel.delivery.RetryPolicy;
+import io.jenkins.plugins.opslevel.delivery.WebhookSender;
+import io.jenkins.plugins.opslevel.metrics.NotifierMetrics;
 import org.apache.commons.io.IOUtils;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.ExtractResourceSCM;
@@ -17,6 +24,12 @@ import javax.json.JsonObject;
 import javax.json.JsonReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +46,13 @@ public class PostBuildActionTest {
 
     MockWebServer server = new MockWebServer();
 
+    @Before
+    public void waitForOpsLevel() {
+        // Most of these tests read OpsLevel's answer from the build console, which builds only show when they
+        // wait for it
+        jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class).setConsoleWaitSeconds(30);
+    }
+
     @Test
     public void testSuccessSimpliestCase() throws Exception {
         /*
@@ -211,7 +231,48 @@ public class PostBuildActionTest {
         JsonObject commitJson = payload.getJsonObject("commit");
         Assert.assertEquals(commitJson.getString("sha"), "500ca67ed52a9ca20f3181e618347e61f86a0625");
         Assert.assertEquals(commitJson.getString("branch"), "origin/master");
-        Assert.assertThat(commitJson.getString("message"), startsWith("Fix typo"));
+        // The description is set and no template refers to the commit, so it is not read from the workspace
+        Assert.assertFalse(commitJson.containsKey("message"));
+        Assert.assertFalse(commitJson.containsKey("author_name"));
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testCommitVariablesInTemplates() throws Exception {
+        /*
+            Ensure templates can use the message and author of the commit being deployed
+        */
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "${GIT_COMMIT_MESSAGE} by ${GIT_COMMIT_AUTHOR_NAME} <${GIT_COMMIT_AUTHOR_EMAIL}>",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        project.setScm(new ExtractResourceSCM(getClass().getResource("/project-with-git.zip")));
+        mockJenkinsEnvVar("GIT_COMMIT", "500ca67ed52a9ca20f3181e618347e61f86a0625");
+        mockJenkinsEnvVar("GIT_BRANCH", "origin/master");
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(request);
+        JsonReader jsonReader = Json.createReader(new StringReader(request.getBody().readUtf8()));
+        JsonObject payload = jsonReader.readObject();
+        jsonReader.close();
+        Assert.assertEquals("Fix typo by Sergio <sergio@opslevel.com>", payload.getString("description"));
 
         server.shutdown();
     }
@@ -253,6 +314,526 @@ public class PostBuildActionTest {
         server.shutdown();
     }
 
+    @Test
+    public void testFansOutToEveryWebhook() throws Exception {
+        /*
+            Ensure the same deploy is posted to each webhook URL
+        */
+
+        MockWebServer otherServer = new MockWebServer();
+        server.start();
+        otherServer.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        otherServer.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"Example not found\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        String otherWebhookUrl = otherServer.url("").toString();
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl + "\n" + otherWebhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        Reader reader = build.getLogText().readAll();
+        String consoleOutput = IOUtils.toString(reader);
+        reader.close();
+        log.debug("Build console output:\n{}", consoleOutput);
+
+        assertThat(consoleOutput, containsString("Publishing deploy to OpsLevel via: " + webhookUrl));
+        assertThat(consoleOutput, containsString("Publishing deploy to OpsLevel via: " + otherWebhookUrl));
+        assertThat(consoleOutput, containsString("OpsLevel accepted the deploy sent via: " + webhookUrl));
+        assertThat(consoleOutput, containsString("OpsLevel did not accept the deploy sent via: " + otherWebhookUrl));
+
+        String requestBody = server.takeRequest(10, TimeUnit.SECONDS).getBody().readUtf8();
+        String otherRequestBody = otherServer.takeRequest(10, TimeUnit.SECONDS).getBody().readUtf8();
+        Assert.assertEquals(requestBody, otherRequestBody);
+
+        server.shutdown();
+        otherServer.shutdown();
+    }
+
+    @Test
+    public void testDeliversFromQueueAfterBuildCompletes() throws Exception {
+        /*
+            Ensure deploys are still posted when the build only queues them
+        */
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(request);
+        Assert.assertThat(request.toString(), startsWith("POST /?agent=jenkins"));
+
+        String requestBody = request.getBody().readUtf8();
+        JsonReader jsonReader = Json.createReader(new StringReader(requestBody));
+        JsonObject payload = jsonReader.readObject();
+        jsonReader.close();
+        Assert.assertEquals(payload.getString("service"), "test0");
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testShowsBackgroundDeliveryInConsole() throws Exception {
+        /*
+            Ensure the response of a deploy posted by the delivery threads still reaches the build console
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        Assert.assertEquals(DeliveryQueue.DEFAULT_THREADS, descriptor.getDeliveryThreads());
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        Reader reader = build.getLogText().readAll();
+        String consoleOutput = IOUtils.toString(reader);
+        reader.close();
+        log.debug("Build console output:\n{}", consoleOutput);
+
+        assertThat(consoleOutput, containsString("Publishing deploy to OpsLevel via: " + webhookUrl));
+        assertThat(consoleOutput, containsString("OpsLevel Response: {\"result\": \"ok\"}"));
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testDoesNotWaitForOpsLevelByDefault() throws Exception {
+        /*
+            Ensure a build finishes without waiting for OpsLevel, and the deploy is still delivered
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setConsoleWaitSeconds(JobListener.DEFAULT_CONSOLE_WAIT_SECONDS);
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}").setHeadersDelay(3, TimeUnit.SECONDS));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        long sentBefore = NotifierMetrics.get().getCount(NotifierMetrics.SENT);
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        Reader reader = build.getLogText().readAll();
+        String consoleOutput = IOUtils.toString(reader);
+        reader.close();
+        log.debug("Build console output:\n{}", consoleOutput);
+
+        assertThat(consoleOutput, containsString("OpsLevel notifier: the deploy is queued"));
+        Assert.assertFalse(consoleOutput.contains("OpsLevel Response:"));
+
+        Assert.assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (NotifierMetrics.get().getCount(NotifierMetrics.SENT) == sentBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(sentBefore + 1, NotifierMetrics.get().getCount(NotifierMetrics.SENT));
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testShowsWhereToFindSlowDeliveries() throws Exception {
+        /*
+            Ensure a build that stops waiting for OpsLevel says so, and the deploy is still delivered
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setConsoleWaitSeconds(1);
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}").setHeadersDelay(3, TimeUnit.SECONDS));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+        Assert.assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+
+        Reader reader = build.getLogText().readAll();
+        String consoleOutput = IOUtils.toString(reader);
+        reader.close();
+        log.debug("Build console output:\n{}", consoleOutput);
+
+        assertThat(consoleOutput, containsString("OpsLevel notifier: the deploy is still being delivered"));
+        Assert.assertFalse(consoleOutput.contains("OpsLevel Response:"));
+
+        descriptor.setConsoleWaitSeconds(JobListener.DEFAULT_CONSOLE_WAIT_SECONDS);
+        server.shutdown();
+    }
+
+    @Test
+    public void testBatchesDeploysToTheSameWebhook() throws Exception {
+        /*
+            Ensure deploys that finish close together are posted as one array
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        // The first build would otherwise wait for a batch that only fills up once the second one finishes
+        descriptor.setConsoleWaitSeconds(0);
+        descriptor.setMaxBatchSize(2);
+        descriptor.setMaxLingerMillis(60000);
+        descriptor.applyDeliverySettings();
+
+        long sentBefore = NotifierMetrics.get().getCount(NotifierMetrics.SENT);
+        server.start();
+        server.enqueue(new MockResponse().setBody("[{\"result\": \"first\"}, {\"result\": \"second\"}]"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        List<FreeStyleBuild> builds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            FreeStyleProject project = jenkins.createFreeStyleProject();
+            project.getPublishersList().add(new PostBuildAction(
+                    true,
+                    webhookUrl,
+                    "",
+                    "",
+                    "",
+                    "",
+                    "",
+                    "",
+                    ""
+            ));
+            builds.add(jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0)));
+        }
+
+        RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(request);
+        JsonReader jsonReader = Json.createReader(new StringReader(request.getBody().readUtf8()));
+        Assert.assertEquals(jsonReader.readArray().size(), 2);
+        jsonReader.close();
+        Assert.assertEquals(server.getRequestCount(), 1);
+
+        // Counted once for each deploy in the post, and each build gets its own result on the delivery status page
+        long deadline = System.currentTimeMillis() + 10000;
+        while (NotifierMetrics.get().getCount(NotifierMetrics.SENT) < sentBefore + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(sentBefore + 2, NotifierMetrics.get().getCount(NotifierMetrics.SENT));
+        Map<String, String> responses = new HashMap<>();
+        for (DeliveryRecord record : DeliveryQueue.get().getHistory().getRecent()) {
+            responses.put(record.getSource(), record.getResponse());
+        }
+        Assert.assertEquals("{\"result\": \"first\"}", responses.get(builds.get(0).getExternalizableId()));
+        Assert.assertEquals("{\"result\": \"second\"}", responses.get(builds.get(1).getExternalizableId()));
+
+        descriptor.setConsoleWaitSeconds(JobListener.DEFAULT_CONSOLE_WAIT_SECONDS);
+        descriptor.setMaxBatchSize(1);
+        descriptor.applyDeliverySettings();
+        server.shutdown();
+    }
+
+    @Test
+    public void testRetriesServerErrors() throws Exception {
+        /*
+            Ensure a deploy OpsLevel could not take right now is posted again
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setRetryBackoffMillis(10);
+        descriptor.applyDeliverySettings();
+
+        server.start();
+        server.enqueue(new MockResponse().setResponseCode(503).setBody("{\"error\":\"Unavailable\"}"));
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+
+        Assert.assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+        Assert.assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+        Assert.assertEquals(server.getRequestCount(), 2);
+
+        descriptor.setRetryBackoffMillis(1000);
+        descriptor.applyDeliverySettings();
+        server.shutdown();
+    }
+
+    @Test
+    public void testGzipsRequestBodies() throws Exception {
+        /*
+            Ensure compressed deploys carry the same payload
+        */
+
+        setCompressRequests(true);
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+
+        RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(request);
+        Assert.assertEquals("gzip", request.getHeader("Content-Encoding"));
+        JsonReader jsonReader = Json.createReader(new GZIPInputStream(request.getBody().inputStream()));
+        JsonObject payload = jsonReader.readObject();
+        jsonReader.close();
+        Assert.assertEquals(payload.getString("service"), "test0");
+
+        setCompressRequests(false);
+        server.shutdown();
+    }
+
+    @Test
+    public void testFallsBackToUncompressedBodies() throws Exception {
+        /*
+            Ensure a webhook that refuses gzip still gets the deploy
+        */
+
+        setCompressRequests(true);
+        server.start();
+        server.enqueue(new MockResponse().setResponseCode(415).setBody("{\"error\":\"Unsupported encoding\"}"));
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+
+        RecordedRequest compressed = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        RecordedRequest plain = server.takeRequest(10, TimeUnit.SECONDS);
+        Assert.assertNull(plain.getHeader("Content-Encoding"));
+        JsonReader jsonReader = Json.createReader(new StringReader(plain.getBody().readUtf8()));
+        JsonObject payload = jsonReader.readObject();
+        jsonReader.close();
+        Assert.assertEquals(payload.getString("service"), "test0");
+
+        setCompressRequests(false);
+        server.shutdown();
+    }
+
+    @Test
+    public void testPublishesMetrics() throws Exception {
+        /*
+            Ensure delivered deploys show up in the metrics endpoint
+        */
+
+        long sentBefore = NotifierMetrics.get().getCount(NotifierMetrics.SENT);
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+
+        String body = jenkins.createWebClient().goTo("opslevel-metrics/", "application/json")
+                             .getWebResponse().getContentAsString();
+        JsonReader jsonReader = Json.createReader(new StringReader(body));
+        JsonObject metrics = jsonReader.readObject();
+        jsonReader.close();
+        Assert.assertEquals(sentBefore + 1, metrics.getJsonObject("counters").getJsonNumber("sent").longValue());
+        Assert.assertTrue(metrics.getJsonObject("timers").getJsonObject("http").getInt("count") > 0);
+
+        server.shutdown();
+    }
+
+    @Test
+    public void testShowsRecentDeliveries() throws Exception {
+        /*
+            Ensure a delivery shows up on the delivery status page with what OpsLevel answered
+        */
+
+        server.start();
+        server.enqueue(new MockResponse().setBody("{\"result\": \"ok\"}"));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        String body = jenkins.createWebClient().goTo("opslevel-deliveries/json", "application/json")
+                             .getWebResponse().getContentAsString();
+        JsonReader jsonReader = Json.createReader(new StringReader(body));
+        JsonObject latest = jsonReader.readObject().getJsonArray("deliveries").getJsonObject(0);
+        jsonReader.close();
+        Assert.assertEquals(build.getExternalizableId(), latest.getString("run"));
+        Assert.assertEquals(project.getName(), latest.getString("service"));
+        Assert.assertEquals(200, latest.getInt("status"));
+        Assert.assertEquals("{\"result\": \"ok\"}", latest.getString("response"));
+        Assert.assertEquals(server.url("").host() + ":" + server.getPort(), latest.getString("host"));
+
+        jenkins.createWebClient().goTo("opslevel-deliveries/");
+        server.shutdown();
+    }
+
+    @Test
+    public void testTruncatesLargeResponses() throws Exception {
+        /*
+            Ensure a huge error page only has its start read and shown in the build console
+        */
+
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setMaxResponseBytes(64);
+        descriptor.setMaxDeliveryAttempts(1);
+        descriptor.applyDeliverySettings();
+
+        StringBuilder page = new StringBuilder("<html><body>Bad Gateway");
+        while (page.length() < 100000) {
+            page.append("<p>The upstream server did not answer in time.</p>");
+        }
+        page.append("</body></html>");
+        server.start();
+        server.enqueue(new MockResponse().setResponseCode(502).setHeader("Content-Type", "text/html")
+                                         .setBody(page.toString()));
+        String webhookUrl = server.url("").toString(); // .url("") means root path. Result will be http://<host>:<port>/
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getPublishersList().add(new PostBuildAction(
+                true,
+                webhookUrl,
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                ""
+        ));
+
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+        jenkins.assertBuildStatusSuccess(build);
+
+        Reader reader = build.getLogText().readAll();
+        String consoleOutput = IOUtils.toString(reader);
+        reader.close();
+        log.debug("Build console output:\n{}", consoleOutput);
+
+        assertThat(consoleOutput, containsString("OpsLevel Response: " + page.substring(0, 64) + "... [truncated"));
+        assertThat(consoleOutput, containsString("giving up on deploy after 1 attempts. OpsLevel returned 502"));
+        Assert.assertFalse(consoleOutput.contains("</body></html>"));
+
+        descriptor.setMaxResponseBytes(WebhookSender.DEFAULT_MAX_RESPONSE_BYTES);
+        descriptor.setMaxDeliveryAttempts(RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+        descriptor.applyDeliverySettings();
+        server.shutdown();
+    }
+
+    private void setCompressRequests(boolean compress) {
+        GlobalConfigUI.DescriptorImpl descriptor = jenkins.jenkins.getDescriptorByType(GlobalConfigUI.DescriptorImpl.class);
+        descriptor.setCompressRequests(compress);
+        descriptor.setCompressThresholdBytes(0);
+        descriptor.applyDeliverySettings();
+    }
+
     private void mockJenkinsEnvVar(String name, String value) {
         EnvironmentVariablesNodeProperty prop = new EnvironmentVariablesNodeProperty();
         EnvVars envVars = prop.getEnvVars();